@@ -0,0 +1,35 @@
+-- ============================================
+-- Database Migration Script for bill_order links
+-- ============================================
+-- Bills now record the orders they cover in bill_order.
+-- Hibernate creates the table (ddl-auto=update); this script creates it
+-- explicitly and backfills links for bills generated before the change.
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS bill_order (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    bill_id UUID NOT NULL REFERENCES bill(id),
+    order_id UUID NOT NULL REFERENCES orders(id),
+    CONSTRAINT uk_bill_order UNIQUE (bill_id, order_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bill_order_order_id ON bill_order(order_id);
+
+-- Every bill covers its own order
+INSERT INTO bill_order (bill_id, order_id)
+SELECT b.id, b.order_id
+FROM bill b
+WHERE b.order_id IS NOT NULL
+ON CONFLICT (bill_id, order_id) DO NOTHING;
+
+-- Combined bills also cover the orders whose COMBINED reference bill was generated
+-- within one minute for the same table (the rule previously applied at render time)
+INSERT INTO bill_order (bill_id, order_id)
+SELECT cb.id, ref.order_id
+FROM bill cb
+JOIN orders co ON co.id = cb.order_id
+JOIN orders o ON o.table_id = co.table_id AND o.status = 'COMPLETED'
+JOIN bill ref ON ref.order_id = o.id AND ref.payment_status = 'COMBINED'
+WHERE cb.payment_status = 'COMBINED_BILL'
+  AND ABS(EXTRACT(EPOCH FROM (ref.generated_at - cb.generated_at))) < 120
+ON CONFLICT (bill_id, order_id) DO NOTHING;
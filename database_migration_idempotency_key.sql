@@ -0,0 +1,19 @@
+-- ============================================
+-- Database Migration Script for order submission idempotency keys
+-- ============================================
+-- Public order submissions with an Idempotency-Key header store their
+-- response in idempotency_key, shared by all nodes. The key is the
+-- primary key, so a concurrent duplicate insert fails instead of
+-- placing the order twice.
+-- Hibernate creates the table (ddl-auto=update); this script creates it
+-- explicitly.
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    idempotency_key VARCHAR(200) PRIMARY KEY,
+    response TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_expires ON idempotency_key(expires_at);
@@ -0,0 +1,41 @@
+-- ============================================
+-- Database Migration Script for the order event outbox
+-- ============================================
+-- Order and bill events are appended to outbox_event in the transaction
+-- that changes the order, and published by the outbox dispatcher.
+-- Database consumers record the events they committed in outbox_delivery.
+-- Hibernate creates the tables (ddl-auto=update); this script creates them
+-- explicitly, adds the retry columns to tables created before them, and
+-- adds the partial index the dispatcher polls.
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS outbox_event (
+    id BIGSERIAL PRIMARY KEY,
+    aggregate_id UUID NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    stations VARCHAR(255),
+    created_at TIMESTAMP NOT NULL,
+    published_at TIMESTAMP
+);
+
+-- Failed dispatch attempts; the event is parked after outbox.max-attempts
+ALTER TABLE outbox_event
+ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0,
+ADD COLUMN IF NOT EXISTS last_error VARCHAR(1000),
+ADD COLUMN IF NOT EXISTS parked_at TIMESTAMP;
+
+-- Pending events, in dispatch order; stays small however many rows are kept
+CREATE INDEX IF NOT EXISTS idx_outbox_event_pending ON outbox_event(id)
+WHERE published_at IS NULL AND parked_at IS NULL;
+
+-- Purge of published events
+CREATE INDEX IF NOT EXISTS idx_outbox_event_unpublished ON outbox_event(published_at, id);
+
+CREATE TABLE IF NOT EXISTS outbox_delivery (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    event_id BIGINT NOT NULL,
+    consumer VARCHAR(255) NOT NULL,
+    delivered_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_outbox_delivery UNIQUE (event_id, consumer)
+);
@@ -0,0 +1,32 @@
+-- ============================================
+-- Database Migration Script for hourly sales rollups
+-- ============================================
+-- Sales reports read per-outlet hourly totals from sales_rollup, kept up
+-- to date from order events; sales_rollup_order remembers what each order
+-- contributed so replayed events only apply the difference.
+-- Hibernate creates the tables (ddl-auto=update); this script creates them
+-- explicitly with the keys the upserts rely on:
+-- ON CONFLICT (outlet_id, bucket_start) and ON CONFLICT (order_id).
+-- The rollups are rebuilt from orders and bills at startup when
+-- sales_rollup_order is empty, so no backfill is needed here.
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS sales_rollup (
+    outlet_id UUID NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    gross_paise BIGINT NOT NULL DEFAULT 0,
+    tax_paise BIGINT NOT NULL DEFAULT 0,
+    discount_paise BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (outlet_id, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sales_rollup_bucket ON sales_rollup(bucket_start);
+
+CREATE TABLE IF NOT EXISTS sales_rollup_order (
+    order_id UUID PRIMARY KEY,
+    outlet_id UUID NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    total_paise BIGINT NOT NULL,
+    bill_id UUID
+);
@@ -0,0 +1,25 @@
+-- ============================================
+-- Database Migration Script for asynchronous stock deduction
+-- ============================================
+-- BILLED events queue one stock_deduction_task per bill, which the
+-- deduction workers claim with FOR UPDATE SKIP LOCKED and delete once the
+-- stock is deducted. bill_id is the primary key: queuing a bill twice is
+-- a no-op (ON CONFLICT (bill_id) DO NOTHING).
+-- Hibernate creates the table (ddl-auto=update); this script creates it
+-- explicitly.
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS stock_deduction_task (
+    bill_id UUID PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000)
+);
+
+-- Due tasks for the workers' poll. Only pending tasks are kept in the table,
+-- so no partial predicate is needed.
+CREATE INDEX IF NOT EXISTS idx_stock_deduction_task_due ON stock_deduction_task(next_attempt_at);
+
+-- Oldest pending task for the deduction lag gauge
+CREATE INDEX IF NOT EXISTS idx_stock_deduction_task_created ON stock_deduction_task(created_at);
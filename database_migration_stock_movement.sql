@@ -0,0 +1,28 @@
+-- ============================================
+-- Database Migration Script for the stock movement ledger
+-- ============================================
+-- Every stock change is now recorded in stock_movement, and
+-- ingredient.quantity is a projection of the ledger.
+-- Hibernate creates the table (ddl-auto=update); this script creates it
+-- explicitly and books the stock held before the change as an opening
+-- ADJUSTMENT, so the ledger sums to the current quantity.
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS stock_movement (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    ingredient_id UUID NOT NULL REFERENCES ingredient(id),
+    movement_type VARCHAR(255) NOT NULL,
+    quantity DOUBLE PRECISION NOT NULL,
+    reference_id UUID,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_movement_ingredient ON stock_movement(ingredient_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_stock_movement_reference ON stock_movement(reference_id);
+
+-- Opening stock for ingredients that have no movements yet
+INSERT INTO stock_movement (id, ingredient_id, movement_type, quantity, reference_id, created_at)
+SELECT gen_random_uuid(), i.id, 'ADJUSTMENT', i.quantity, NULL, NOW()
+FROM ingredient i
+WHERE i.quantity <> 0
+  AND NOT EXISTS (SELECT 1 FROM stock_movement m WHERE m.ingredient_id = i.id);
@@ -0,0 +1,25 @@
+-- ============================================
+-- Database Migration Script for striped hot-ingredient stock
+-- ============================================
+-- Ingredients flagged hot_stock spread their pending stock changes over
+-- ingredient_stock_shard rows, which are folded back into
+-- ingredient.quantity by the compaction job.
+-- Hibernate creates the table and column (ddl-auto=update); this script
+-- creates them explicitly, including the unique (ingredient_id, shard)
+-- constraint the shard rows are looked up by.
+-- ============================================
+
+ALTER TABLE ingredient
+ADD COLUMN IF NOT EXISTS hot_stock BOOLEAN;
+
+CREATE TABLE IF NOT EXISTS ingredient_stock_shard (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    ingredient_id UUID NOT NULL REFERENCES ingredient(id),
+    shard INTEGER NOT NULL,
+    quantity DOUBLE PRECISION NOT NULL DEFAULT 0,
+    CONSTRAINT uk_ingredient_stock_shard UNIQUE (ingredient_id, shard)
+);
+
+-- Compaction only visits shards with a pending delta
+CREATE INDEX IF NOT EXISTS idx_ingredient_stock_shard_pending ON ingredient_stock_shard(ingredient_id)
+WHERE quantity <> 0;
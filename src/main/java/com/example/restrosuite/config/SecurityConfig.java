@@ -1,6 +1,7 @@
 package com.example.restrosuite.config;
 
 import com.example.restrosuite.security.JwtAuthFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -29,6 +30,7 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(auth -> auth
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // Streamed bodies finish on an async dispatch of an already authorized request
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/customer/**").permitAll() // Allow public access to customer endpoints
                 .requestMatchers("/customer/**").permitAll() // Allow public access to customer frontend pages
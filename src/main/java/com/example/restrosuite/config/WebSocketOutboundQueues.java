@@ -0,0 +1,255 @@
+package com.example.restrosuite.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-session outbound queues for WebSocket clients.
+ * Every session gets a bounded queue drained by a small shared sender pool, so one slow
+ * tablet never blocks the broker or other sessions. While a message waits in the queue, a newer
+ * message with the same conflation key (see {@link #CONFLATION_KEY_HEADER}) and destination
+ * supersedes it, e.g. an order's superseded status updates: the stale message is dropped and the
+ * newer one joins the tail, so messages still go out in the order they were published. A session
+ * whose queue overflows has its backlog dropped and is closed, so the client reconnects and
+ * reloads state instead of applying deltas with a gap.
+ * Meters are aggregated over all sessions (total and maximum queue depth, drops, conflations and
+ * overflow closes) so their number stays fixed however many clients connect.
+ */
+@Component
+public class WebSocketOutboundQueues {
+
+    /**
+     * STOMP header marking messages that supersede earlier queued messages with the same value.
+     */
+    public static final String CONFLATION_KEY_HEADER = "conflation-key";
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketOutboundQueues.class);
+
+    private final int queueLimit;
+    private final ExecutorService senders;
+    private final Map<String, SessionQueue> sessions = new ConcurrentHashMap<>();
+    private final Counter droppedTotal;
+    private final Counter conflatedTotal;
+    private final Counter overflowClosedTotal;
+
+    public WebSocketOutboundQueues(MeterRegistry meterRegistry,
+                                   @Value("${websocket.outbound.queue-limit:256}") int queueLimit,
+                                   @Value("${websocket.outbound.sender-threads:16}") int senderThreads) {
+        this.queueLimit = queueLimit;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "ws-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.droppedTotal = Counter.builder("websocket.outbound.dropped")
+                .description("Outbound WebSocket messages dropped because a session's queue overflowed")
+                .register(meterRegistry);
+        this.conflatedTotal = Counter.builder("websocket.outbound.conflated")
+                .description("Queued outbound WebSocket messages replaced by a newer message")
+                .register(meterRegistry);
+        this.overflowClosedTotal = Counter.builder("websocket.outbound.overflow.closed")
+                .description("WebSocket sessions closed because their outbound queue overflowed")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.queue.depth", sessions,
+                        s -> s.values().stream().mapToInt(SessionQueue::depth).sum())
+                .description("Outbound WebSocket messages waiting across all sessions")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.queue.max_depth", sessions,
+                        s -> s.values().stream().mapToInt(SessionQueue::depth).max().orElse(0))
+                .description("Outbound WebSocket messages waiting in the longest session queue")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.sessions", sessions, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Decorator factory for {@code WebSocketTransportRegistration.addDecoratorFactory}.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                SessionQueue queue = new SessionQueue(session);
+                sessions.put(session.getId(), queue);
+                super.afterConnectionEstablished(queue);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus)
+                    throws Exception {
+                SessionQueue queue = sessions.remove(session.getId());
+                if (queue != null) {
+                    queue.release();
+                }
+                super.afterConnectionClosed(queue != null ? queue : session, closeStatus);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private static final class Pending {
+        private final String key;
+        private final WebSocketMessage<?> message;
+
+        private Pending(String key, WebSocketMessage<?> message) {
+            this.key = key;
+            this.message = message;
+        }
+    }
+
+    private final class SessionQueue extends WebSocketSessionDecorator {
+
+        private final Deque<Pending> queue = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private SessionQueue(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        int depth() {
+            synchronized (queue) {
+                return queue.size();
+            }
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) {
+            if (closed) {
+                return;
+            }
+            String key = conflationKey(message);
+            int overflow = 0;
+            synchronized (queue) {
+                if (key != null && removeQueued(key)) {
+                    queue.addLast(new Pending(key, message));
+                    conflatedTotal.increment();
+                } else if (queue.size() >= queueLimit) {
+                    overflow = queue.size() + 1;
+                    queue.clear();
+                } else {
+                    queue.addLast(new Pending(key, message));
+                }
+            }
+            if (overflow > 0) {
+                droppedTotal.increment(overflow);
+                overflowClosedTotal.increment();
+                log.warn("WebSocket session {} fell {} messages behind, closing it", getId(), overflow);
+                closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        // At most one message per key is queued, so stop at the first match
+        private boolean removeQueued(String key) {
+            for (Iterator<Pending> it = queue.iterator(); it.hasNext(); ) {
+                if (key.equals(it.next().key)) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // One drain per session at a time; the flag is cleared under the queue lock so a
+        // message enqueued concurrently always schedules a new drain
+        private void drain() {
+            try {
+                while (true) {
+                    Pending next;
+                    synchronized (queue) {
+                        next = queue.pollFirst();
+                        if (next == null) {
+                            draining.set(false);
+                            return;
+                        }
+                    }
+                    getDelegate().sendMessage(next.message);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Failed to send to WebSocket session {}: {}", getId(), e.getMessage());
+                synchronized (queue) {
+                    queue.clear();
+                    draining.set(false);
+                }
+                closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+
+        private void closeQuietly(CloseStatus status) {
+            closed = true;
+            try {
+                getDelegate().close(status);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Failed to close WebSocket session {}: {}", getId(), e.getMessage());
+            }
+        }
+
+        void release() {
+            closed = true;
+            synchronized (queue) {
+                queue.clear();
+            }
+        }
+    }
+
+    /**
+     * Conflation key of an encoded STOMP MESSAGE frame: destination plus the value of the
+     * conflation-key header, or null if the frame has none.
+     */
+    private static String conflationKey(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text)) {
+            return null;
+        }
+        String frame = text.getPayload();
+        int headersEnd = frame.indexOf("\n\n");
+        String value = headerValue(frame, CONFLATION_KEY_HEADER, headersEnd);
+        if (value == null) {
+            return null;
+        }
+        return headerValue(frame, "destination", headersEnd) + "|" + value;
+    }
+
+    private static String headerValue(String frame, String name, int headersEnd) {
+        int index = frame.indexOf("\n" + name + ":");
+        if (index < 0 || headersEnd < 0 || index > headersEnd) {
+            return null;
+        }
+        int start = index + name.length() + 2;
+        int end = frame.indexOf('\n', start);
+        return frame.substring(start, end);
+    }
+}
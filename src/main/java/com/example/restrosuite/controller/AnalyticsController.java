@@ -1,23 +1,28 @@
 package com.example.restrosuite.controller;
 
-import com.example.restrosuite.entity.Bill;
 import com.example.restrosuite.entity.Ingredient;
 import com.example.restrosuite.entity.Order;
-import com.example.restrosuite.entity.Payroll;
-import com.example.restrosuite.entity.PurchaseOrder;
+import com.example.restrosuite.repository.AmountTotals;
 import com.example.restrosuite.repository.BillRepository;
 import com.example.restrosuite.repository.IngredientRepository;
 import com.example.restrosuite.repository.OrderRepository;
 import com.example.restrosuite.repository.PayrollRepository;
 import com.example.restrosuite.repository.PurchaseOrderRepository;
+import com.example.restrosuite.service.AnalyticsCache;
+import com.example.restrosuite.service.InventoryService;
+import com.example.restrosuite.service.LiveSalesCounters;
+import com.example.restrosuite.service.ReportExecutor;
+import com.example.restrosuite.service.SalesRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @RestController
@@ -39,8 +44,29 @@ public class AnalyticsController {
     @Autowired
     private PayrollRepository payrollRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private ReportExecutor reportExecutor;
+
+    @Autowired
+    private LiveSalesCounters liveSalesCounters;
+
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
     @GetMapping("/sales-summary")
-    public Map<String, Object> getSalesSummary(@RequestParam(required = false) String period) {
+    public Map<String, Object> getSalesSummary(@RequestParam(required = false) String period,
+                                               @RequestParam(required = false) UUID outletId) {
+        return analyticsCache.get(AnalyticsCache.key(AnalyticsCache.SALES_SUMMARY, "period", period, "outletId", outletId),
+                () -> salesSummary(period, outletId));
+    }
+
+    private Map<String, Object> salesSummary(String period, UUID outletId) {
         LocalDateTime startDate = null;
         LocalDateTime endDate = LocalDateTime.now();
         
@@ -62,100 +88,82 @@ public class AnalyticsController {
             }
         }
         
-        List<Order> orders;
-        if (startDate != null) {
-            orders = orderRepository.findByCreatedAtBetween(startDate, endDate);
-        } else {
-            orders = orderRepository.findAll();
-        }
-
-        double totalSales = orders.stream()
-                .mapToDouble(Order::getTotalAmount)
-                .sum();
+        // Read from the hourly rollups; no start date means all time
+        SalesRollupService.SalesTotals totals = salesRollupService.totals(
+                new SalesRollupService.Range(startDate, endDate), outletId);
 
-        long totalOrders = orders.size();
+        double totalSales = totals.gross();
+        long totalOrders = totals.orders();
 
         Map<String, Object> result = new HashMap<>();
         result.put("totalSales", totalSales);
         result.put("totalOrders", totalOrders);
         result.put("avgOrderValue", totalSales / (totalOrders == 0 ? 1 : totalOrders));
+        result.put("totalTax", totals.tax());
+        result.put("totalDiscount", totals.discount());
         result.put("period", period != null ? period : "all");
 
         return result;
     }
     
     @GetMapping("/sales-trends")
-    public Map<String, Object> getSalesTrends() {
+    public Map<String, Object> getSalesTrends(@RequestParam(required = false) UUID outletId) {
+        return analyticsCache.get(AnalyticsCache.key(AnalyticsCache.SALES_TRENDS, "outletId", outletId),
+                () -> salesTrends(outletId));
+    }
+
+    private Map<String, Object> salesTrends(UUID outletId) {
         LocalDate today = LocalDate.now();
-        
-        // Today's stats
         LocalDateTime todayStart = today.atStartOfDay();
         LocalDateTime todayEnd = LocalDateTime.now();
-        List<Order> todayOrders = orderRepository.findByCreatedAtBetween(todayStart, todayEnd);
-        double todaySales = todayOrders.stream().mapToDouble(Order::getTotalAmount).sum();
-        long todayCount = todayOrders.size();
-        
-        // Yesterday's stats (for comparison)
-        LocalDateTime yesterdayStart = today.minusDays(1).atStartOfDay();
-        LocalDateTime yesterdayEnd = todayStart.minusSeconds(1);
-        List<Order> yesterdayOrders = orderRepository.findByCreatedAtBetween(yesterdayStart, yesterdayEnd);
-        double yesterdaySales = yesterdayOrders.stream().mapToDouble(Order::getTotalAmount).sum();
-        long yesterdayCount = yesterdayOrders.size();
-        
-        // This week's stats
         LocalDateTime weekStart = today.minusDays(7).atStartOfDay();
-        List<Order> weekOrders = orderRepository.findByCreatedAtBetween(weekStart, todayEnd);
-        double weekSales = weekOrders.stream().mapToDouble(Order::getTotalAmount).sum();
-        long weekCount = weekOrders.size();
-        
-        // Last week's stats (for comparison)
-        LocalDateTime lastWeekStart = today.minusDays(14).atStartOfDay();
-        LocalDateTime lastWeekEnd = weekStart.minusSeconds(1);
-        List<Order> lastWeekOrders = orderRepository.findByCreatedAtBetween(lastWeekStart, lastWeekEnd);
-        double lastWeekSales = lastWeekOrders.stream().mapToDouble(Order::getTotalAmount).sum();
-        long lastWeekCount = lastWeekOrders.size();
-        
-        // This month's stats
         LocalDateTime monthStart = today.minusMonths(1).atStartOfDay();
-        List<Order> monthOrders = orderRepository.findByCreatedAtBetween(monthStart, todayEnd);
-        double monthSales = monthOrders.stream().mapToDouble(Order::getTotalAmount).sum();
-        long monthCount = monthOrders.size();
-        
-        // Last month's stats (for comparison)
-        LocalDateTime lastMonthStart = today.minusMonths(2).atStartOfDay();
-        LocalDateTime lastMonthEnd = monthStart.minusSeconds(1);
-        List<Order> lastMonthOrders = orderRepository.findByCreatedAtBetween(lastMonthStart, lastMonthEnd);
-        double lastMonthSales = lastMonthOrders.stream().mapToDouble(Order::getTotalAmount).sum();
-        long lastMonthCount = lastMonthOrders.size();
-        
+
         Map<String, Object> result = new HashMap<>();
-        
-        // Today with trend
-        Map<String, Object> todayData = new HashMap<>();
-        todayData.put("sales", todaySales);
-        todayData.put("orders", todayCount);
-        todayData.put("salesChange", yesterdaySales > 0 ? ((todaySales - yesterdaySales) / yesterdaySales) * 100 : 0);
-        todayData.put("ordersChange", yesterdayCount > 0 ? ((todayCount - yesterdayCount) / (double) yesterdayCount) * 100 : 0);
-        result.put("today", todayData);
-        
-        // Week with trend
-        Map<String, Object> weekData = new HashMap<>();
-        weekData.put("sales", weekSales);
-        weekData.put("orders", weekCount);
-        weekData.put("salesChange", lastWeekSales > 0 ? ((weekSales - lastWeekSales) / lastWeekSales) * 100 : 0);
-        weekData.put("ordersChange", lastWeekCount > 0 ? ((weekCount - lastWeekCount) / (double) lastWeekCount) * 100 : 0);
-        result.put("week", weekData);
-        
-        // Month with trend
-        Map<String, Object> monthData = new HashMap<>();
-        monthData.put("sales", monthSales);
-        monthData.put("orders", monthCount);
-        monthData.put("salesChange", lastMonthSales > 0 ? ((monthSales - lastMonthSales) / lastMonthSales) * 100 : 0);
-        monthData.put("ordersChange", lastMonthCount > 0 ? ((monthCount - lastMonthCount) / (double) lastMonthCount) * 100 : 0);
-        result.put("month", monthData);
-        
+        List<SalesRollupService.Range> ranges = new ArrayList<>(List.of(
+                new SalesRollupService.Range(weekStart, todayEnd),
+                new SalesRollupService.Range(today.minusDays(14).atStartOfDay(), weekStart.minusSeconds(1)),
+                new SalesRollupService.Range(monthStart, todayEnd),
+                new SalesRollupService.Range(today.minusMonths(2).atStartOfDay(), monthStart.minusSeconds(1))));
+        if (liveSalesCounters.isReady()) {
+            // Today and the last hour come from the in-memory minute counters
+            LiveSalesCounters.Counts current = liveSalesCounters.today(outletId);
+            LiveSalesCounters.Counts previous = liveSalesCounters.between(
+                    todayStart.minusDays(1), todayStart, outletId);
+            result.put("today", trendOf(current.orders(), current.gross(), previous.orders(), previous.gross()));
+            LiveSalesCounters.Counts lastHour = liveSalesCounters.lastHour(outletId);
+            LiveSalesCounters.Counts hourBefore = liveSalesCounters.between(
+                    todayEnd.minusMinutes(119), todayEnd.minusMinutes(59), outletId);
+            result.put("lastHour", trendOf(lastHour.orders(), lastHour.gross(), hourBefore.orders(), hourBefore.gross()));
+        } else {
+            ranges.add(new SalesRollupService.Range(todayStart, todayEnd));
+            ranges.add(new SalesRollupService.Range(today.minusDays(1).atStartOfDay(), todayStart.minusSeconds(1)));
+        }
+
+        // The remaining windows (each period and the one before it) in one pass over the rollups
+        List<SalesRollupService.SalesTotals> windows = salesRollupService.totals(ranges, outletId);
+        result.put("week", trendOf(windows.get(0), windows.get(1)));
+        result.put("month", trendOf(windows.get(2), windows.get(3)));
+        if (windows.size() > 4) {
+            result.put("today", trendOf(windows.get(4), windows.get(5)));
+        }
         return result;
     }
+
+    private static Map<String, Object> trendOf(SalesRollupService.SalesTotals current,
+                                               SalesRollupService.SalesTotals previous) {
+        return trendOf(current.orders(), current.gross(), previous.orders(), previous.gross());
+    }
+
+    private static Map<String, Object> trendOf(long orders, double sales, long previousOrders, double previousSales) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("sales", sales);
+        data.put("orders", orders);
+        data.put("salesChange", previousSales > 0 ? ((sales - previousSales) / previousSales) * 100 : 0);
+        data.put("ordersChange", previousOrders > 0
+                ? ((orders - previousOrders) / (double) previousOrders) * 100 : 0);
+        return data;
+    }
     
     @GetMapping("/recent-orders")
     public List<Order> getRecentOrders(@RequestParam(defaultValue = "10") int limit) {
@@ -166,7 +174,7 @@ public class AnalyticsController {
 
     @GetMapping("/low-stock")
     public List<Ingredient> getLowStockItems() {
-        return ingredientRepository.findAll().stream()
+        return inventoryService.withCurrentStock(ingredientRepository.findAll()).stream()
                 .filter(i -> i.getQuantity() <= i.getThreshold())
                 .toList();
     }
@@ -175,40 +183,22 @@ public class AnalyticsController {
     public Map<String, Object> getProfitAndLoss(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCache.get(AnalyticsCache.key(AnalyticsCache.PROFIT_LOSS, "startDate", startDate, "endDate", endDate),
+                () -> profitAndLoss(startDate, endDate));
+    }
+
+    private Map<String, Object> profitAndLoss(String startDate, String endDate) {
         LocalDateTime start = startDate != null ? LocalDate.parse(startDate).atStartOfDay() : LocalDate.now().minusMonths(1).atStartOfDay();
         LocalDateTime end = endDate != null ? LocalDate.parse(endDate).atTime(23, 59, 59) : LocalDateTime.now();
 
-        // Revenue (from Bills)
-        List<Bill> bills = billRepository.findAll().stream()
-                .filter(bill -> bill.getGeneratedAt() != null &&
-                        !bill.getGeneratedAt().isBefore(start) &&
-                        !bill.getGeneratedAt().isAfter(end))
-                .toList();
-        double totalRevenue = bills.stream()
-                .mapToDouble(Bill::getGrandTotal)
-                .sum();
-
-        // Expenses
-        // 1. Purchase Orders
-        List<PurchaseOrder> purchaseOrders = purchaseOrderRepository.findAll().stream()
-                .filter(po -> po.getDate() != null &&
-                        !po.getDate().isBefore(start) &&
-                        !po.getDate().isAfter(end))
-                .toList();
-        double purchaseExpenses = purchaseOrders.stream()
-                .mapToDouble(po -> (po.getCost() * po.getQuantity()))
-                .sum();
-
-        // 2. Payroll Expenses
-        List<Payroll> payrolls = payrollRepository.findAll().stream()
-                .filter(p -> p.getPaymentDate() != null &&
-                        !p.getPaymentDate().isBefore(start.toLocalDate()) &&
-                        !p.getPaymentDate().isAfter(end.toLocalDate()) &&
-                        "PAID".equals(p.getStatus()))
-                .toList();
-        double payrollExpenses = payrolls.stream()
-                .mapToDouble(p -> p.getNetSalary() != null ? p.getNetSalary() : 0.0)
-                .sum();
+        // Sums and counts are computed in the database over indexed date ranges, one query per source in parallel
+        FinancialTotals totals = financialTotals("profit-loss", start, end);
+        AmountTotals bills = totals.bills();
+        AmountTotals purchaseOrders = totals.purchaseOrders();
+        AmountTotals payrolls = totals.payrolls();
+        double totalRevenue = bills.getTotal();
+        double purchaseExpenses = purchaseOrders.getTotal();
+        double payrollExpenses = payrolls.getTotal();
 
         double totalExpenses = purchaseExpenses + payrollExpenses;
         double netProfit = totalRevenue - totalExpenses;
@@ -223,9 +213,9 @@ public class AnalyticsController {
         result.put("payrollExpenses", payrollExpenses);
         result.put("netProfit", netProfit);
         result.put("profitMargin", profitMargin);
-        result.put("totalBills", bills.size());
-        result.put("totalPurchaseOrders", purchaseOrders.size());
-        result.put("totalPayrolls", payrolls.size());
+        result.put("totalBills", bills.getCount());
+        result.put("totalPurchaseOrders", purchaseOrders.getCount());
+        result.put("totalPayrolls", payrolls.getCount());
 
         return result;
     }
@@ -234,40 +224,22 @@ public class AnalyticsController {
     public Map<String, Object> getCashFlow(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
+        return analyticsCache.get(AnalyticsCache.key(AnalyticsCache.CASH_FLOW, "startDate", startDate, "endDate", endDate),
+                () -> cashFlow(startDate, endDate));
+    }
+
+    private Map<String, Object> cashFlow(String startDate, String endDate) {
         LocalDateTime start = startDate != null ? LocalDate.parse(startDate).atStartOfDay() : LocalDate.now().minusMonths(1).atStartOfDay();
         LocalDateTime end = endDate != null ? LocalDate.parse(endDate).atTime(23, 59, 59) : LocalDateTime.now();
 
-        // Cash Inflows (from Bills - assuming all bills are paid)
-        List<Bill> bills = billRepository.findAll().stream()
-                .filter(bill -> bill.getGeneratedAt() != null &&
-                        !bill.getGeneratedAt().isBefore(start) &&
-                        !bill.getGeneratedAt().isAfter(end))
-                .toList();
-        double cashInflows = bills.stream()
-                .mapToDouble(Bill::getGrandTotal)
-                .sum();
-
-        // Cash Outflows
-        // 1. Purchase Orders (paid)
-        List<PurchaseOrder> purchaseOrders = purchaseOrderRepository.findAll().stream()
-                .filter(po -> po.getDate() != null &&
-                        !po.getDate().isBefore(start) &&
-                        !po.getDate().isAfter(end))
-                .toList();
-        double purchaseOutflows = purchaseOrders.stream()
-                .mapToDouble(po -> (po.getCost() * po.getQuantity()))
-                .sum();
-
-        // 2. Payroll Payments
-        List<Payroll> payrolls = payrollRepository.findAll().stream()
-                .filter(p -> p.getPaymentDate() != null &&
-                        !p.getPaymentDate().isBefore(start.toLocalDate()) &&
-                        !p.getPaymentDate().isAfter(end.toLocalDate()) &&
-                        "PAID".equals(p.getStatus()))
-                .toList();
-        double payrollOutflows = payrolls.stream()
-                .mapToDouble(p -> p.getNetSalary() != null ? p.getNetSalary() : 0.0)
-                .sum();
+        // Cash inflows assume all bills are paid; sums and counts are computed in the database
+        FinancialTotals totals = financialTotals("cash-flow", start, end);
+        AmountTotals bills = totals.bills();
+        AmountTotals purchaseOrders = totals.purchaseOrders();
+        AmountTotals payrolls = totals.payrolls();
+        double cashInflows = bills.getTotal();
+        double purchaseOutflows = purchaseOrders.getTotal();
+        double payrollOutflows = payrolls.getTotal();
 
         double totalOutflows = purchaseOutflows + payrollOutflows;
         double netCashFlow = cashInflows - totalOutflows;
@@ -280,12 +252,29 @@ public class AnalyticsController {
         result.put("purchaseOutflows", purchaseOutflows);
         result.put("payrollOutflows", payrollOutflows);
         result.put("netCashFlow", netCashFlow);
-        result.put("totalBills", bills.size());
-        result.put("totalPurchaseOrders", purchaseOrders.size());
-        result.put("totalPayrolls", payrolls.size());
+        result.put("totalBills", bills.getCount());
+        result.put("totalPurchaseOrders", purchaseOrders.getCount());
+        result.put("totalPayrolls", payrolls.getCount());
 
         return result;
     }
 
+    private record FinancialTotals(AmountTotals bills, AmountTotals purchaseOrders, AmountTotals payrolls) {
+    }
+
+    /**
+     * Billed revenue, purchase costs and paid payroll for a date range, queried concurrently.
+     */
+    private FinancialTotals financialTotals(String report, LocalDateTime start, LocalDateTime end) {
+        ReportExecutor.Report run = reportExecutor.start(report);
+        ReportExecutor.Leg<AmountTotals> bills = run.leg("bills",
+                () -> billRepository.sumGrandTotalBetween(start, end));
+        ReportExecutor.Leg<AmountTotals> purchaseOrders = run.leg("purchase-orders",
+                () -> purchaseOrderRepository.sumCostBetween(start, end));
+        ReportExecutor.Leg<AmountTotals> payrolls = run.leg("payrolls",
+                () -> payrollRepository.sumNetSalaryBetween(start.toLocalDate(), end.toLocalDate(), "PAID"));
+        return new FinancialTotals(bills.join(), purchaseOrders.join(), payrolls.join());
+    }
+
 }
 
@@ -0,0 +1,60 @@
+package com.example.restrosuite.controller;
+
+import com.example.restrosuite.service.GstReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+@RestController
+@RequestMapping("/api/analytics/gst")
+public class GstReportController {
+
+    @Autowired
+    private GstReportService gstReportService;
+
+    /**
+     * GSTR-1 style summary (B2B invoices, B2C by state and rate, HSN-wise, per-state totals) for
+     * bills generated between two dates (inclusive, yyyy-MM-dd), streamed as JSON (default) or CSV.
+     */
+    @GetMapping("/gstr1")
+    public ResponseEntity<StreamingResponseBody> getGstr1(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = GstReportService.FORMAT_JSON) String format) {
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("from and to must be dates in yyyy-MM-dd format");
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new RuntimeException("to must not be before from");
+        }
+        if (!GstReportService.FORMAT_JSON.equals(format) && !GstReportService.FORMAT_CSV.equals(format)) {
+            throw new RuntimeException("format must be json or csv");
+        }
+
+        LocalDateTime start = fromDate.atStartOfDay();
+        LocalDateTime end = toDate.plusDays(1).atStartOfDay();
+        StreamingResponseBody body = out -> gstReportService.write(start, end, format, out);
+        boolean csv = GstReportService.FORMAT_CSV.equals(format);
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder(csv ? "attachment" : "inline")
+                        .filename("gstr1-" + fromDate + "-to-" + toDate + "." + format).build().toString())
+                .body(body);
+    }
+}
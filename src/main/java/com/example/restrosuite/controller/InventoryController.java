@@ -3,9 +3,12 @@ package com.example.restrosuite.controller;
 import com.example.restrosuite.entity.Ingredient;
 import com.example.restrosuite.entity.MenuIngredient;
 import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.StockMovement;
 import com.example.restrosuite.repository.IngredientRepository;
 import com.example.restrosuite.repository.MenuIngredientRepository;
 import com.example.restrosuite.repository.MenuItemRepository;
+import com.example.restrosuite.repository.StockMovementRepository;
+import com.example.restrosuite.service.InventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,25 +29,31 @@ public class InventoryController {
     @Autowired
     private MenuItemRepository menuItemRepository;
 
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
     @GetMapping("/ingredients")
     public List<Ingredient> getIngredients() {
-        return ingredientRepository.findAll();
+        return inventoryService.withCurrentStock(ingredientRepository.findAll());
     }
 
     @PostMapping("/ingredients")
     public Ingredient addIngredient(@RequestBody Ingredient ingredient) {
-        return ingredientRepository.save(ingredient);
+        // Opening stock goes through the ledger like every other movement
+        return inventoryService.addIngredient(ingredient);
     }
 
     @PutMapping("/ingredients/{id}")
     public Ingredient updateIngredient(@PathVariable UUID id, @RequestBody Ingredient ingredient) {
-        Ingredient existing = ingredientRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Ingredient not found"));
-        existing.setName(ingredient.getName());
-        existing.setQuantity(ingredient.getQuantity());
-        existing.setUnit(ingredient.getUnit());
-        existing.setThreshold(ingredient.getThreshold());
-        return ingredientRepository.save(existing);
+        return inventoryService.updateIngredient(id, ingredient);
+    }
+
+    @GetMapping("/ingredients/{id}/movements")
+    public List<StockMovement> getStockMovements(@PathVariable UUID id) {
+        return stockMovementRepository.findByIngredientIdOrderByCreatedAtDesc(id);
     }
 
     @PostMapping("/menu-link")
@@ -64,7 +73,9 @@ public class InventoryController {
                 .quantityRequired(qty)
                 .build();
 
-        return menuIngredientRepository.save(mi);
+        MenuIngredient saved = menuIngredientRepository.save(mi);
+        inventoryService.invalidateRecipeIndex();
+        return saved;
     }
 
 }
@@ -6,6 +6,7 @@ import com.example.restrosuite.entity.Payroll;
 import com.example.restrosuite.repository.AttendanceRepository;
 import com.example.restrosuite.repository.EmployeeRepository;
 import com.example.restrosuite.repository.PayrollRepository;
+import com.example.restrosuite.service.AnalyticsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,6 +27,9 @@ public class PayrollController {
     @Autowired
     private AttendanceRepository attendanceRepository;
 
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
     @GetMapping
     public List<Payroll> getAllPayrolls() {
         return payrollRepository.findAll();
@@ -137,7 +141,9 @@ public class PayrollController {
         payroll.setNetSalary(totalEarnings - totalDeductions);
         payroll.setPaymentDate(LocalDate.of(year, month, 1).plusMonths(1)); // Pay on 1st of next month
 
-        return payrollRepository.save(payroll);
+        Payroll saved = payrollRepository.save(payroll);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
+        return saved;
     }
 
     @PostMapping
@@ -175,7 +181,9 @@ public class PayrollController {
             payroll.setStatus("PENDING");
         }
 
-        return payrollRepository.save(payroll);
+        Payroll saved = payrollRepository.save(payroll);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -219,7 +227,9 @@ public class PayrollController {
 
         payroll.setNetSalary(payroll.getTotalEarnings() - payroll.getTotalDeductions());
 
-        return payrollRepository.save(payroll);
+        Payroll saved = payrollRepository.save(payroll);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
+        return saved;
     }
 
     @PutMapping("/{id}/mark-paid")
@@ -232,7 +242,9 @@ public class PayrollController {
             payroll.setPaymentDate(LocalDate.now());
         }
 
-        return payrollRepository.save(payroll);
+        Payroll saved = payrollRepository.save(payroll);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
+        return saved;
     }
 
     @DeleteMapping("/{id}")
@@ -240,6 +252,7 @@ public class PayrollController {
         payrollRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Payroll not found"));
         payrollRepository.deleteById(id);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
         return "Payroll deleted successfully!";
     }
 
@@ -2,10 +2,13 @@ package com.example.restrosuite.controller;
 
 import com.example.restrosuite.entity.Ingredient;
 import com.example.restrosuite.entity.PurchaseOrder;
+import com.example.restrosuite.entity.StockMovement;
 import com.example.restrosuite.entity.Supplier;
 import com.example.restrosuite.repository.IngredientRepository;
 import com.example.restrosuite.repository.PurchaseOrderRepository;
 import com.example.restrosuite.repository.SupplierRepository;
+import com.example.restrosuite.service.AnalyticsCache;
+import com.example.restrosuite.service.InventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,6 +30,12 @@ public class PurchaseOrderController {
     @Autowired
     private IngredientRepository ingredientRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
     @GetMapping
     public List<PurchaseOrder> getAllPurchaseOrders() {
         return purchaseOrderRepository.findAll();
@@ -59,10 +68,10 @@ public class PurchaseOrderController {
                 .build();
 
         PurchaseOrder saved = purchaseOrderRepository.save(purchaseOrder);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
 
         // Auto-update ingredient quantity when purchase order is created
-        ingredient.setQuantity(ingredient.getQuantity() + quantity);
-        ingredientRepository.save(ingredient);
+        inventoryService.recordMovement(ingredient.getId(), StockMovement.PURCHASE, quantity, saved.getId());
 
         return saved;
     }
@@ -72,16 +81,12 @@ public class PurchaseOrderController {
         PurchaseOrder existing = purchaseOrderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Purchase order not found"));
 
-        // Revert old quantity if ingredient changed
+        Ingredient oldIngredient = existing.getIngredient();
+        double oldQuantity = existing.getQuantity();
+
         if (payload.containsKey("ingredientId")) {
             UUID newIngredientId = UUID.fromString(payload.get("ingredientId").toString());
-            if (!existing.getIngredient().getId().equals(newIngredientId)) {
-                // Revert old ingredient quantity
-                Ingredient oldIngredient = existing.getIngredient();
-                oldIngredient.setQuantity(oldIngredient.getQuantity() - existing.getQuantity());
-                ingredientRepository.save(oldIngredient);
-
-                // Update to new ingredient
+            if (!oldIngredient.getId().equals(newIngredientId)) {
                 Ingredient newIngredient = ingredientRepository.findById(newIngredientId)
                         .orElseThrow(() -> new RuntimeException("Ingredient not found"));
                 existing.setIngredient(newIngredient);
@@ -96,22 +101,25 @@ public class PurchaseOrderController {
         }
 
         if (payload.containsKey("quantity")) {
-            double newQuantity = Double.parseDouble(payload.get("quantity").toString());
-            double oldQuantity = existing.getQuantity();
-            
-            // Update ingredient quantity based on difference
-            Ingredient ingredient = existing.getIngredient();
-            ingredient.setQuantity(ingredient.getQuantity() - oldQuantity + newQuantity);
-            ingredientRepository.save(ingredient);
-            
-            existing.setQuantity(newQuantity);
+            existing.setQuantity(Double.parseDouble(payload.get("quantity").toString()));
+        }
+
+        // Move stock to match the edited purchase order
+        if (!existing.getIngredient().getId().equals(oldIngredient.getId())) {
+            // Ingredient changed: reverse the old receipt and book the full quantity on the new one
+            inventoryService.recordMovement(oldIngredient.getId(), StockMovement.REVERSAL, -oldQuantity, existing.getId());
+            inventoryService.recordMovement(existing.getIngredient().getId(), StockMovement.PURCHASE, existing.getQuantity(), existing.getId());
+        } else if (existing.getQuantity() != oldQuantity) {
+            inventoryService.recordMovement(oldIngredient.getId(), StockMovement.ADJUSTMENT, existing.getQuantity() - oldQuantity, existing.getId());
         }
 
         if (payload.containsKey("cost")) {
             existing.setCost(Double.parseDouble(payload.get("cost").toString()));
         }
 
-        return purchaseOrderRepository.save(existing);
+        PurchaseOrder saved = purchaseOrderRepository.save(existing);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
+        return saved;
     }
 
     @DeleteMapping("/{id}")
@@ -120,11 +128,11 @@ public class PurchaseOrderController {
                 .orElseThrow(() -> new RuntimeException("Purchase order not found"));
 
         // Revert ingredient quantity when purchase order is deleted
-        Ingredient ingredient = purchaseOrder.getIngredient();
-        ingredient.setQuantity(ingredient.getQuantity() - purchaseOrder.getQuantity());
-        ingredientRepository.save(ingredient);
+        inventoryService.recordMovement(purchaseOrder.getIngredient().getId(), StockMovement.REVERSAL,
+                -purchaseOrder.getQuantity(), purchaseOrder.getId());
 
         purchaseOrderRepository.deleteById(id);
+        analyticsCache.invalidateAfterCommit(AnalyticsCache.PROFIT_LOSS, AnalyticsCache.CASH_FLOW);
     }
 }
 
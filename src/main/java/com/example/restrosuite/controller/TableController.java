@@ -5,6 +5,7 @@ import com.example.restrosuite.entity.TableEntity;
 import com.example.restrosuite.repository.OutletRepository;
 import com.example.restrosuite.repository.TableRepository;
 import com.example.restrosuite.service.QrCodeService;
+import com.example.restrosuite.service.TableSessionRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -31,6 +32,9 @@ public class TableController {
     @Autowired
     private QrCodeService qrCodeService;
 
+    @Autowired
+    private TableSessionRegistry tableSessionRegistry;
+
     @GetMapping
     public List<TableEntity> getAllTables() {
         return tableRepository.findAll();
@@ -68,6 +72,7 @@ public class TableController {
             System.err.println("Failed to generate QR code URL: " + e.getMessage());
         }
         
+        tableSessionRegistry.refreshTableAfterCommit(savedTable.getId());
         return savedTable;
     }
 
@@ -104,7 +109,9 @@ public class TableController {
             }
         }
         
-        return tableRepository.save(existing);
+        TableEntity saved = tableRepository.save(existing);
+        tableSessionRegistry.refreshTableAfterCommit(saved.getId());
+        return saved;
     }
 
     @GetMapping("/{id}/qr-code")
@@ -157,6 +164,7 @@ public class TableController {
     @DeleteMapping("/{id}")
     public String deleteTable(@PathVariable UUID id) {
         tableRepository.deleteById(id);
+        tableSessionRegistry.removeTable(id);
         return "Table deleted!";
     }
 
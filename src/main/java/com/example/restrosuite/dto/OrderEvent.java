@@ -0,0 +1,66 @@
+package com.example.restrosuite.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact order change broadcast on the order topics in place of the full Order entity.
+ * Clients load the order once (GET /api/orders) and then apply events in sequence order,
+ * ignoring any event whose sequence they have already seen.
+ * Line quantities are absolute, so applying a line replaces the client's copy of it.
+ * Events are published to /topic/orders, /topic/outlets/{outletId}/orders,
+ * /topic/outlets/{outletId}/stations/{station} (only that station's lines) and /topic/tables/{tableId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderEvent {
+
+    public static final String CREATED = "CREATED";             // lines = all lines
+    public static final String ITEMS_ADDED = "ITEMS_ADDED";     // lines = new or merged lines
+    public static final String STATUS_CHANGED = "STATUS_CHANGED";
+    public static final String BILLED = "BILLED";
+
+    private long sequence;
+    private String type;
+    private UUID orderId;
+    private UUID tableId;
+    private UUID outletId;
+    private String status;
+    private String previousStatus; // STATUS_CHANGED only
+    private Double totalAmount;
+    private UUID billId; // BILLED only
+    private List<Line> lines;
+    private Boolean linesOmitted; // Lines left out (relayed from another node and too large); reload the order
+    private LocalDateTime occurredAt;
+
+    @JsonIgnore
+    private Set<String> stations; // Stations with lines on the order, used for routing only
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class Line {
+        private UUID lineId;
+        private UUID menuItemId;
+        private String name;
+        private String station; // Preparation station, derived from the menu item category
+        private int quantity;
+        private double price; // Base price per unit
+        private List<String> modifiers; // Modifier names
+        private double lineTotal;
+    }
+}
@@ -14,6 +14,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(name = "bill", indexes = {
+        // Covers revenue sums over a date range (index-only scan)
+        @Index(name = "idx_bill_generated_at", columnList = "generated_at, grand_total")
+})
 public class Bill {
 
     @Id
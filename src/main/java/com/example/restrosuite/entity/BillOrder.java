@@ -0,0 +1,41 @@
+package com.example.restrosuite.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Links a bill to every order it covers.
+ * A single-order bill has one row; a combined table bill has one row per included order.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "bill_order", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_bill_order", columnNames = {"bill_id", "order_id"})
+}, indexes = {
+        @Index(name = "idx_bill_order_order_id", columnList = "order_id")
+})
+public class BillOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bill_id", nullable = false)
+    @JsonIgnore
+    private Bill bill;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    @JsonIgnore
+    private Order order;
+}
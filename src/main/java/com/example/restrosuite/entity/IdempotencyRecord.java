@@ -0,0 +1,37 @@
+package com.example.restrosuite.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored response for an Idempotency-Key, used by the JDBC idempotency store so retries
+ * are replayed on whichever node they reach. Rows are purged once expired.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "idempotency_key", indexes = {
+        @Index(name = "idx_idempotency_key_expires", columnList = "expires_at")
+})
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 200)
+    private String idempotencyKey; // Scoped key, e.g. customer-order:<tableId>:<client key>
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String response; // Original response body as JSON
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
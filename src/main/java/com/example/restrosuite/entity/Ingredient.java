@@ -26,9 +26,14 @@ public class Ingredient {
     @Column(nullable = false, unique = true)
     private String name;
 
+    // Stock projection maintained by InventoryService via atomic increments alongside
+    // StockMovement rows; never written by entity updates to avoid lost updates
+    @Column(updatable = false)
     private double quantity;   // e.g., 5000
     private String unit;       // e.g., grams, ml, pcs
     private double threshold;  // minimum level before restock warning
 
+    private Boolean hotStock;  // true for high-contention ingredients (oil, salt...) whose stock is striped across shards
+
 }
 
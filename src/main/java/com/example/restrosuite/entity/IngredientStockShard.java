@@ -0,0 +1,41 @@
+package com.example.restrosuite.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * One stripe of a hot ingredient's stock counter.
+ * Deductions for hot ingredients land on a random shard instead of the single ingredient row;
+ * current stock is Ingredient.quantity plus the sum of its shards until compaction folds them back.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "ingredient_stock_shard", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ingredient_stock_shard", columnNames = {"ingredient_id", "shard"})
+})
+public class IngredientStockShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ingredient_id", nullable = false)
+    @JsonIgnore
+    private Ingredient ingredient;
+
+    @Column(nullable = false)
+    private int shard;
+
+    @Column(nullable = false)
+    private double quantity; // Pending delta not yet folded into Ingredient.quantity
+}
@@ -0,0 +1,39 @@
+package com.example.restrosuite.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Records that a database-writing outbox consumer has committed its work for an event.
+ * Written in the consumer's own transaction, so a retried event is only handed to the consumers
+ * that have not applied it yet. Rows are removed once the event is published.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "outbox_delivery", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_outbox_delivery", columnNames = {"event_id", "consumer"})
+})
+public class OutboxDelivery {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private Long eventId; // outbox_event.id
+
+    @Column(nullable = false)
+    private String consumer; // Consumer class name
+
+    @Column(nullable = false)
+    private LocalDateTime deliveredAt;
+}
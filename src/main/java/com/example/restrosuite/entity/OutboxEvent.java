@@ -0,0 +1,55 @@
+package com.example.restrosuite.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Transactional outbox of order and bill events.
+ * Rows are written in the same transaction as the change they describe and published by
+ * OutboxDispatcher after commit; the id doubles as the event's sequence number. A row whose
+ * consumers keep failing is parked after outbox.max-attempts and no longer dispatched.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_event_unpublished", columnList = "published_at, id")
+})
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID aggregateId; // Order the event belongs to
+
+    @Column(nullable = false)
+    private String eventType; // OrderEvent type: CREATED, ITEMS_ADDED, STATUS_CHANGED, BILLED
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload; // OrderEvent as JSON
+
+    private String stations; // Comma-separated station keys used for routing
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime publishedAt; // null until dispatched
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int attempts; // Failed dispatch attempts
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime parkedAt; // set once the event is given up on
+}
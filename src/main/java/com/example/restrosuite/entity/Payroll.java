@@ -14,6 +14,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(name = "payroll", indexes = {
+        // Covers paid salary sums over a payment date range (index-only scan)
+        @Index(name = "idx_payroll_payment_date", columnList = "payment_date, status, net_salary")
+})
 public class Payroll {
 
     @Id
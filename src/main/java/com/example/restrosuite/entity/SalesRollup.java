@@ -0,0 +1,56 @@
+package com.example.restrosuite.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sales totals for one outlet and one hour, maintained incrementally from order and bill events.
+ * Orders are counted in the hour they were created; amounts are in paise.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@IdClass(SalesRollup.Key.class)
+@Table(name = "sales_rollup", indexes = {
+        @Index(name = "idx_sales_rollup_bucket", columnList = "bucket_start")
+})
+public class SalesRollup {
+
+    /** Outlet id used for orders that are not linked to an outlet */
+    public static final UUID NO_OUTLET = new UUID(0, 0);
+
+    @Id
+    private UUID outletId;
+
+    @Id
+    private LocalDateTime bucketStart; // Truncated to the hour
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long grossPaise; // Sum of order totals
+
+    @Column(nullable = false)
+    private long taxPaise; // GST of the bills for these orders
+
+    @Column(nullable = false)
+    private long discountPaise;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID outletId;
+        private LocalDateTime bucketStart;
+    }
+}
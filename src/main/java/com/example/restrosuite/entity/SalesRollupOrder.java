@@ -0,0 +1,38 @@
+package com.example.restrosuite.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * What has already been added to {@link SalesRollup} for one order: its bucket, the order total
+ * rolled up so far and the bill whose tax and discount were added. Lets replayed or repeated
+ * events apply only the difference.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "sales_rollup_order")
+public class SalesRollupOrder {
+
+    @Id
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private UUID outletId;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private long totalPaise;
+
+    private UUID billId; // Set once the bill's tax and discount are rolled up
+}
@@ -0,0 +1,40 @@
+package com.example.restrosuite.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Pending stock deduction for a bill, queued from the bill's BILLED event and removed once
+ * the SALE movements are recorded. Keyed by bill id so a bill is only queued once.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "stock_deduction_task", indexes = {
+        @Index(name = "idx_stock_deduction_task_due", columnList = "next_attempt_at")
+})
+public class StockDeductionTask {
+
+    @Id
+    private UUID billId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt; // Pushed back after each failed attempt
+
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -0,0 +1,52 @@
+package com.example.restrosuite.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Append-only ledger of ingredient stock changes.
+ * Ingredient.quantity is the running projection of these rows and is only ever
+ * changed by atomic increments written alongside a movement.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "stock_movement", indexes = {
+        @Index(name = "idx_stock_movement_ingredient", columnList = "ingredient_id, created_at"),
+        @Index(name = "idx_stock_movement_reference", columnList = "reference_id")
+})
+public class StockMovement {
+
+    public static final String SALE = "SALE";
+    public static final String PURCHASE = "PURCHASE";
+    public static final String ADJUSTMENT = "ADJUSTMENT";
+    public static final String REVERSAL = "REVERSAL";
+
+    @Id
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ingredient_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+    private Ingredient ingredient;
+
+    @Column(nullable = false)
+    private String movementType; // SALE, PURCHASE, ADJUSTMENT, REVERSAL
+
+    @Column(nullable = false)
+    private double quantity; // Signed delta: negative for consumption, positive for stock in
+
+    private UUID referenceId; // Bill or purchase order that caused the movement
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
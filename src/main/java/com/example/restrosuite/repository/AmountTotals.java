@@ -0,0 +1,11 @@
+package com.example.restrosuite.repository;
+
+/**
+ * Row count and summed amount returned by aggregate repository queries.
+ */
+public interface AmountTotals {
+
+    long getCount();
+
+    double getTotal();
+}
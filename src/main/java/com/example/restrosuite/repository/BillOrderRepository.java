@@ -0,0 +1,21 @@
+package com.example.restrosuite.repository;
+
+import com.example.restrosuite.entity.BillOrder;
+import com.example.restrosuite.entity.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface BillOrderRepository extends JpaRepository<BillOrder, UUID> {
+
+    // All orders covered by a bill, with their items and menu items, in one query
+    @Query("SELECT DISTINCT o FROM BillOrder bo JOIN bo.order o "
+            + "LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.menuItem "
+            + "WHERE bo.bill.id = :billId ORDER BY o.createdAt")
+    List<Order> findOrdersByBillId(@Param("billId") UUID billId);
+}
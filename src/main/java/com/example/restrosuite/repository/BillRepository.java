@@ -4,8 +4,10 @@ import com.example.restrosuite.entity.Bill;
 import com.example.restrosuite.entity.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,10 +16,16 @@ import java.util.UUID;
 public interface BillRepository extends JpaRepository<Bill, UUID> {
     Optional<Bill> findByOrder(Order order);
     Optional<Bill> findByOrderId(UUID orderId);
+    boolean existsByOrderId(UUID orderId);
     List<Bill> findAllByOrderByGeneratedAtDesc();
     
     // Find the most recent bill for a table (by checking orders linked to bills)
     @Query("SELECT b FROM Bill b WHERE b.order.table.id = :tableId ORDER BY b.generatedAt DESC")
     List<Bill> findBillsByTableId(UUID tableId);
+
+    // Revenue over a period, summed in the database (served by idx_bill_generated_at)
+    @Query("SELECT COUNT(b) AS count, COALESCE(SUM(b.grandTotal), 0.0) AS total FROM Bill b "
+            + "WHERE b.generatedAt >= :start AND b.generatedAt <= :end")
+    AmountTotals sumGrandTotalBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
 
@@ -1,12 +1,24 @@
 package com.example.restrosuite.repository;
 
 import com.example.restrosuite.entity.Ingredient;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface IngredientRepository extends JpaRepository<Ingredient, UUID> {
-}
 
+    @Query("SELECT i.id FROM Ingredient i WHERE i.hotStock = true")
+    List<UUID> findHotStockIds();
+
+    // Row lock so a stock count is booked against the quantity it was compared with
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Ingredient i WHERE i.id = :id")
+    Optional<Ingredient> findByIdForUpdate(UUID id);
+}
@@ -0,0 +1,19 @@
+package com.example.restrosuite.repository;
+
+import com.example.restrosuite.entity.IngredientStockShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface IngredientStockShardRepository extends JpaRepository<IngredientStockShard, UUID> {
+
+    List<IngredientStockShard> findByIngredientId(UUID ingredientId);
+
+    // Pending (ingredientId, sum of shard deltas) per striped ingredient
+    @Query("SELECT s.ingredient.id, SUM(s.quantity) FROM IngredientStockShard s GROUP BY s.ingredient.id")
+    List<Object[]> sumQuantityByIngredient();
+}
@@ -2,11 +2,17 @@ package com.example.restrosuite.repository;
 
 import com.example.restrosuite.entity.MenuIngredient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface MenuIngredientRepository extends JpaRepository<MenuIngredient, UUID> {
-}
 
+    // Flat (menuItemId, ingredientId, quantityRequired) rows for building the recipe index
+    // without hydrating MenuItem/Ingredient entities
+    @Query("SELECT mi.menuItem.id, mi.ingredient.id, mi.quantityRequired FROM MenuIngredient mi")
+    List<Object[]> findAllRecipeLines();
+}
@@ -31,5 +31,13 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     // Find all completed orders for a table that don't have bills yet
     @Query("SELECT o FROM Order o WHERE o.table.id = :tableId AND o.status = 'COMPLETED' ORDER BY o.createdAt ASC")
     List<Order> findCompletedOrdersByTableId(UUID tableId);
+    
+    // Find the most recent completed order for a table
+    @Query(value = "SELECT * FROM orders WHERE table_id = :tableId AND status = 'COMPLETED' ORDER BY created_at DESC LIMIT 1", nativeQuery = true)
+    java.util.Optional<Order> findLatestCompletedOrderByTableId(UUID tableId);
+    
+    // Count completed orders for a table that have no bill yet
+    @Query("SELECT COUNT(o) FROM Order o WHERE o.table.id = :tableId AND o.status = 'COMPLETED' AND NOT EXISTS (SELECT b.id FROM Bill b WHERE b.order = o)")
+    long countUnbilledCompletedOrdersByTableId(UUID tableId);
 }
 
@@ -2,8 +2,11 @@ package com.example.restrosuite.repository;
 
 import com.example.restrosuite.entity.Payroll;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,5 +18,11 @@ public interface PayrollRepository extends JpaRepository<Payroll, UUID> {
     List<Payroll> findByMonthAndYear(Integer month, Integer year);
     List<Payroll> findByStatus(String status);
     List<Payroll> findByYear(Integer year);
+
+    // Net salary of payrolls with the given status paid out over a period, summed in the database
+    @Query("SELECT COUNT(p) AS count, COALESCE(SUM(COALESCE(p.netSalary, 0.0)), 0.0) AS total FROM Payroll p "
+            + "WHERE p.paymentDate >= :start AND p.paymentDate <= :end AND p.status = :status")
+    AmountTotals sumNetSalaryBetween(@Param("start") LocalDate start, @Param("end") LocalDate end,
+                                     @Param("status") String status);
 }
 
@@ -2,11 +2,19 @@ package com.example.restrosuite.repository;
 
 import com.example.restrosuite.entity.PurchaseOrder;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Repository
 public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, UUID> {
+
+    // Purchase spend (cost x quantity) over a period, summed in the database
+    @Query("SELECT COUNT(po) AS count, COALESCE(SUM(po.cost * po.quantity), 0.0) AS total FROM PurchaseOrder po "
+            + "WHERE po.date >= :start AND po.date <= :end")
+    AmountTotals sumCostBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
 
@@ -0,0 +1,20 @@
+package com.example.restrosuite.repository;
+
+import com.example.restrosuite.entity.StockMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, UUID> {
+    List<StockMovement> findByIngredientIdOrderByCreatedAtDesc(UUID ingredientId);
+    List<StockMovement> findByReferenceId(UUID referenceId);
+
+    // References (e.g. bills) among the given ids that already have movements of this type
+    @Query("SELECT DISTINCT m.referenceId FROM StockMovement m WHERE m.movementType = :movementType AND m.referenceId IN :referenceIds")
+    List<UUID> findReferenceIdsWithMovements(String movementType, Collection<UUID> referenceIds);
+}
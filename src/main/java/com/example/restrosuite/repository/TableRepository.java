@@ -1,12 +1,20 @@
 package com.example.restrosuite.repository;
 
 import com.example.restrosuite.entity.TableEntity;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface TableRepository extends JpaRepository<TableEntity, UUID> {
-}
 
+    // Row lock used to serialize order intake per table across nodes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM TableEntity t WHERE t.id = :id")
+    Optional<TableEntity> findByIdForUpdate(UUID id);
+}
@@ -0,0 +1,165 @@
+package com.example.restrosuite.security;
+
+import com.example.restrosuite.entity.Employee;
+import com.example.restrosuite.repository.EmployeeRepository;
+import com.example.restrosuite.service.TableSessionRegistry;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP connections and authorizes topic subscriptions.
+ * The /ws handshake is public, so staff clients send their bearer token as an
+ * Authorization header on the STOMP CONNECT frame; it is validated like JwtAuthFilter does.
+ * <ul>
+ *   <li>/topic/tables/{tableId}: anyone holding the table id (the QR code), like /api/customer</li>
+ *   <li>/topic/outlets/{outletId}/...: admins, and staff whose employee record is assigned to that outlet</li>
+ *   <li>any other topic (including the all-outlet /topic/orders): staff</li>
+ * </ul>
+ * Sending frames is limited to staff.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    private static final Set<String> STAFF_ROLES = Set.of("ADMIN", "MANAGER", "CASHIER", "KITCHEN");
+
+    private static final Pattern TABLE_TOPIC = Pattern.compile("^/topic/tables/([0-9a-fA-F-]{36})$");
+    private static final Pattern OUTLET_TOPIC = Pattern.compile("^/topic/outlets/([0-9a-fA-F-]{36})/.+$");
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CognitoTokenValidator cognitoTokenValidator;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private TableSessionRegistry tableSessionRegistry;
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String authHeader = accessor.getFirstNativeHeader("Authorization");
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                Authentication authentication = authenticate(authHeader.substring(7));
+                if (authentication == null) {
+                    throw new MessagingException("Invalid or expired token");
+                }
+                accessor.setUser(authentication);
+            }
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorizeSubscription(accessor.getDestination(), accessor.getUser());
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            // Only staff may publish, so customers cannot inject events onto shared topics
+            String role = roleOf(accessor.getUser());
+            if (role == null || !STAFF_ROLES.contains(role)) {
+                throw new MessagingException("Not authorized to send to " + accessor.getDestination());
+            }
+        }
+        return message;
+    }
+
+    private void authorizeSubscription(String destination, Principal user) {
+        if (destination == null) {
+            throw new MessagingException("Subscription destination is required");
+        }
+
+        Matcher table = TABLE_TOPIC.matcher(destination);
+        if (table.matches()) {
+            if (tableSessionRegistry.getSession(UUID.fromString(table.group(1))).isEmpty()) {
+                throw new MessagingException("Table not found");
+            }
+            return;
+        }
+
+        String role = roleOf(user);
+        if (role == null || !STAFF_ROLES.contains(role)) {
+            log.debug("Rejected subscription to {} for {}", destination, user != null ? user.getName() : "anonymous");
+            throw new MessagingException("Not authorized to subscribe to " + destination);
+        }
+
+        Matcher outlet = OUTLET_TOPIC.matcher(destination);
+        if (outlet.matches() && !"ADMIN".equals(role)) {
+            // Other staff only see the traffic of the outlet they are assigned to
+            UUID outletId = UUID.fromString(outlet.group(1));
+            Optional<Employee> employee = employeeRepository.findByEmail(user.getName());
+            if (employee.isEmpty() || employee.get().getOutlet() == null
+                    || !employee.get().getOutlet().getId().equals(outletId)) {
+                log.debug("Rejected subscription to {} for {}", destination, user.getName());
+                throw new MessagingException("Not authorized to subscribe to " + destination);
+            }
+        }
+    }
+
+    private static String roleOf(Principal user) {
+        if (!(user instanceof Authentication authentication)) {
+            return null;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            return authority.getAuthority();
+        }
+        return null;
+    }
+
+    // Same order as JwtAuthFilter: Cognito first when enabled, then the app's own JWT
+    private Authentication authenticate(String token) {
+        String email = null;
+        String role = null;
+        if (cognitoTokenValidator.isEnabled()) {
+            try {
+                JWTClaimsSet claims = cognitoTokenValidator.validateToken(token);
+                if (claims != null) {
+                    email = cognitoTokenValidator.extractEmail(claims);
+                    role = cognitoTokenValidator.extractRole(claims);
+                }
+            } catch (Exception e) {
+                log.debug("Cognito validation failed for STOMP connect: {}", e.getMessage());
+            }
+        }
+        if (email == null || role == null) {
+            try {
+                if (jwtUtil.validateToken(token)) {
+                    email = jwtUtil.extractEmail(token);
+                    role = jwtUtil.extractRole(token);
+                }
+            } catch (Exception e) {
+                log.debug("JWT validation failed for STOMP connect: {}", e.getMessage());
+            }
+        }
+        if (email == null || role == null) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(email, null,
+                Collections.singletonList(new SimpleGrantedAuthority(role)));
+    }
+}
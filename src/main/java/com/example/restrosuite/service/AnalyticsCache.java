@@ -0,0 +1,190 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of analytics results, keyed by endpoint and normalized parameters.
+ * Entries live for analytics.cache.ttl-ms and the least recently used are evicted beyond
+ * analytics.cache.max-entries. Concurrent requests for the same key share one computation.
+ * Entries are dropped after the writes that change them commit: order and bill events from the
+ * outbox clear the sales endpoints (and the financial reports for bills), and purchase order and
+ * payroll writes clear the financial reports. Other nodes' purchase and payroll writes are only
+ * picked up when entries expire. Requests are counted as analytics.cache.requests, tagged by
+ * endpoint and hit or miss.
+ */
+@Service
+@Order(40)
+public class AnalyticsCache implements OutboxConsumer {
+
+    public static final String SALES_SUMMARY = "sales-summary";
+    public static final String SALES_TRENDS = "sales-trends";
+    public static final String PROFIT_LOSS = "profit-loss";
+    public static final String CASH_FLOW = "cash-flow";
+
+    private final long ttlNanos;
+    private final MeterRegistry meterRegistry;
+    private final Counter evictions;
+
+    // Access-ordered for LRU eviction; guarded by itself
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /**
+     * Cache key: an endpoint and its parameters, sorted by name, with nulls left out.
+     */
+    public record Key(String endpoint, String params) {
+    }
+
+    private record Entry(CompletableFuture<Object> value, long expiresAt) {
+    }
+
+    public AnalyticsCache(MeterRegistry meterRegistry,
+                          @Value("${analytics.cache.ttl-ms:30000}") long ttlMs,
+                          @Value("${analytics.cache.max-entries:500}") int maxEntries) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.meterRegistry = meterRegistry;
+        this.evictions = Counter.builder("analytics.cache.evictions")
+                .description("Analytics results evicted to stay within the size limit")
+                .register(meterRegistry);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("analytics.cache.size", entries, map -> {
+                    synchronized (map) {
+                        return map.size();
+                    }
+                })
+                .description("Analytics results currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Key for an endpoint from alternating parameter names and values. String values are
+     * trimmed and lowercased so equivalent requests share an entry.
+     */
+    public static Key key(String endpoint, Object... namesAndValues) {
+        Map<String, String> params = new TreeMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            Object value = namesAndValues[i + 1];
+            if (value != null) {
+                params.put(namesAndValues[i].toString(), value.toString().trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return new Key(endpoint, params.toString());
+    }
+
+    /**
+     * Cached result for the key, computing it with the loader on a miss. Callers that arrive while
+     * the result is being computed wait for it. A failed computation is not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader) {
+        long now = System.nanoTime();
+        Entry entry;
+        boolean hit;
+        synchronized (entries) {
+            entry = entries.get(key);
+            hit = entry != null && entry.expiresAt() - now > 0;
+            if (!hit) {
+                entry = new Entry(new CompletableFuture<>(), now + ttlNanos);
+                entries.put(key, entry);
+            }
+        }
+        count(key.endpoint(), hit);
+        if (hit) {
+            try {
+                return (T) entry.value().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+        try {
+            T value = loader.get();
+            entry.value().complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.value().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drop every cached result of the given endpoints.
+     */
+    public void invalidate(String... endpoints) {
+        Set<String> targets = Set.of(endpoints);
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> targets.contains(key.endpoint()));
+        }
+    }
+
+    /**
+     * Invalidate once the surrounding transaction commits, so a result computed in between
+     * cannot be cached from data about to change. Invalidates immediately outside a transaction.
+     */
+    public void invalidateAfterCommit(String... endpoints) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(endpoints);
+                }
+            });
+        } else {
+            invalidate(endpoints);
+        }
+    }
+
+    /**
+     * Order events change the sales endpoints; BILLED events also change the financial reports.
+     * Called after the batch's rollups have committed and before clients are told about it.
+     */
+    @Override
+    public void consume(List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        boolean billed = events.stream().anyMatch(event -> OrderEvent.BILLED.equals(event.getType()));
+        if (billed) {
+            invalidateAfterCommit(SALES_SUMMARY, SALES_TRENDS, PROFIT_LOSS, CASH_FLOW);
+        } else {
+            invalidateAfterCommit(SALES_SUMMARY, SALES_TRENDS);
+        }
+    }
+
+    private void count(String endpoint, boolean hit) {
+        Counter.builder("analytics.cache.requests")
+                .description("Analytics requests by whether they were served from the cache")
+                .tags("endpoint", endpoint, "result", hit ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+    }
+}
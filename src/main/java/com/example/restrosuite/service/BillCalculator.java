@@ -0,0 +1,162 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.OrderItemModifier;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * GST computation shared by every billing path.
+ * Order lines are flattened into parallel primitive arrays of (amount in paise, rate in basis
+ * points) and all arithmetic is done on longs, so totals are exact and identical whichever
+ * endpoint generated the bill. Tax is rounded half-up per line: intra-state lines get CGST and
+ * SGST at half the rate each, inter-state lines get IGST at the full rate.
+ */
+public final class BillCalculator {
+
+    /** Applied when a menu item has no tax rate set: 5% */
+    public static final int DEFAULT_RATE_BASIS_POINTS = 500;
+
+    private BillCalculator() {
+    }
+
+    /**
+     * Compute the bill for all lines of the given orders.
+     */
+    public static BillComputation compute(Collection<Order> orders, boolean interState, double discountAmount) {
+        Lines lines = new Lines(16);
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                lines.add(item);
+            }
+        }
+        return compute(lines.amounts, lines.rates, lines.count, interState, toPaise(discountAmount));
+    }
+
+    /**
+     * Compute the bill from flattened lines.
+     *
+     * @param amountsPaise      line amounts (unit price incl. modifiers x quantity), in paise
+     * @param rateBasisPoints   GST rate per line in basis points (5% = 500)
+     * @param count             number of lines used from the arrays
+     * @param interState        true for IGST, false for CGST + SGST
+     * @param discountPaise     discount taken off the grand total, in paise
+     */
+    public static BillComputation compute(long[] amountsPaise, int[] rateBasisPoints, int count,
+                                          boolean interState, long discountPaise) {
+        long taxable = 0;
+        long cgst = 0;
+        long sgst = 0;
+        long igst = 0;
+        for (int i = 0; i < count; i++) {
+            long amount = amountsPaise[i];
+            long rate = rateBasisPoints[i];
+            taxable += amount;
+            if (interState) {
+                igst += divideHalfUp(amount * rate, 10_000);
+            } else {
+                long half = divideHalfUp(amount * rate, 20_000);
+                cgst += half;
+                sgst += half;
+            }
+        }
+        return new BillComputation(taxable, cgst, sgst, igst, discountPaise);
+    }
+
+    public static long toPaise(double rupees) {
+        return Math.round(rupees * 100);
+    }
+
+    public static double toRupees(long paise) {
+        return paise / 100.0;
+    }
+
+    private static long divideHalfUp(long value, long divisor) {
+        return value >= 0 ? (value + divisor / 2) / divisor : -((-value + divisor / 2) / divisor);
+    }
+
+    private static int rateOf(MenuItem menuItem) {
+        if (menuItem == null || menuItem.getTaxRate() == null || menuItem.getTaxRate() <= 0) {
+            return DEFAULT_RATE_BASIS_POINTS;
+        }
+        return (int) Math.round(menuItem.getTaxRate() * 100);
+    }
+
+    /**
+     * Growable parallel arrays of line amounts and rates.
+     */
+    private static final class Lines {
+        private long[] amounts;
+        private int[] rates;
+        private int count;
+
+        private Lines(int capacity) {
+            amounts = new long[capacity];
+            rates = new int[capacity];
+        }
+
+        private void add(OrderItem item) {
+            if (count == amounts.length) {
+                amounts = Arrays.copyOf(amounts, count * 2);
+                rates = Arrays.copyOf(rates, count * 2);
+            }
+            long unitPaise = toPaise(item.getPrice());
+            if (item.getModifiers() != null) {
+                for (OrderItemModifier modifier : item.getModifiers()) {
+                    if (modifier.getPrice() != null) {
+                        unitPaise += toPaise(modifier.getPrice());
+                    }
+                }
+            }
+            amounts[count] = unitPaise * item.getQuantity();
+            rates[count] = rateOf(item.getMenuItem());
+            count++;
+        }
+    }
+
+    /**
+     * Bill totals in paise, with rupee accessors for the Bill entity.
+     */
+    public record BillComputation(long taxablePaise, long cgstPaise, long sgstPaise, long igstPaise,
+                                  long discountPaise) {
+
+        public long taxPaise() {
+            return cgstPaise + sgstPaise + igstPaise;
+        }
+
+        public long grandTotalPaise() {
+            return taxablePaise + taxPaise() - discountPaise;
+        }
+
+        public double taxableAmount() {
+            return toRupees(taxablePaise);
+        }
+
+        public double cgst() {
+            return toRupees(cgstPaise);
+        }
+
+        public double sgst() {
+            return toRupees(sgstPaise);
+        }
+
+        public double igst() {
+            return toRupees(igstPaise);
+        }
+
+        public double tax() {
+            return toRupees(taxPaise());
+        }
+
+        public double discountAmount() {
+            return toRupees(discountPaise);
+        }
+
+        public double grandTotal() {
+            return toRupees(grandTotalPaise());
+        }
+    }
+}
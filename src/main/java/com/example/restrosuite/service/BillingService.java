@@ -0,0 +1,295 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.Bill;
+import com.example.restrosuite.entity.BillOrder;
+import com.example.restrosuite.entity.Customer;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.TableEntity;
+import com.example.restrosuite.repository.BillOrderRepository;
+import com.example.restrosuite.repository.BillRepository;
+import com.example.restrosuite.repository.CustomerRepository;
+import com.example.restrosuite.repository.OrderRepository;
+import com.example.restrosuite.repository.TableRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Generates bills. The bill, its bill_order links, the table update and the BILLED outbox
+ * events commit in one transaction; stock is deducted from those events, so a bill is never
+ * left without its deduction.
+ */
+@Service
+@Transactional
+public class BillingService {
+
+    // Default restaurant GSTIN and state (can be configured)
+    private static final String RESTAURANT_GSTIN = "29ABCDE1234F1Z5"; // Example GSTIN
+    private static final String RESTAURANT_STATE = "29"; // Example state code (Karnataka)
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private BillOrderRepository billOrderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TableRepository tableRepository;
+
+    @Autowired
+    private TableSessionRegistry tableSessionRegistry;
+
+    @Autowired
+    private OrderEventPublisher orderEventPublisher;
+
+    /**
+     * Bill one completed order, optionally for a customer (customerId) and with a discount
+     * (discountAmount). Returns the existing bill if the order is already billed.
+     */
+    public Bill generateBill(UUID orderId, Map<String, Object> request) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        if (!order.getStatus().equals("COMPLETED")) {
+            throw new RuntimeException("Order not completed yet");
+        }
+
+        // Check if bill already exists for this order
+        Optional<Bill> existingBill = billRepository.findByOrderId(orderId);
+        if (existingBill.isPresent()) {
+            return existingBill.get(); // Return existing bill instead of creating duplicate
+        }
+
+        Customer customer = customerOf(request);
+        boolean isInterState = isInterState(customer);
+        BillCalculator.BillComputation totals = BillCalculator.compute(List.of(order), isInterState, discountOf(request));
+
+        Bill savedBill = billRepository.save(newBill(order, customer, totals, "PENDING"));
+        billOrderRepository.save(BillOrder.builder().bill(savedBill).order(order).build());
+        releaseTableIfFullyBilled(order);
+
+        // Inventory is deducted asynchronously from the BILLED event
+        orderEventPublisher.publish(orderEventPublisher.billed(order, savedBill.getId()));
+
+        return savedBill;
+    }
+
+    /**
+     * Bill a completed order for a walk-in customer (intra-state, no discount). Returns the
+     * existing bill if the order is already billed.
+     */
+    public Bill generateWalkInBill(UUID orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        Optional<Bill> existingBill = billRepository.findByOrderId(orderId);
+        if (existingBill.isPresent()) {
+            return existingBill.get();
+        }
+
+        BillCalculator.BillComputation totals = BillCalculator.compute(List.of(order), false, 0.0);
+
+        Bill savedBill = billRepository.save(newBill(order, null, totals, "PENDING"));
+        billOrderRepository.save(BillOrder.builder().bill(savedBill).order(order).build());
+        releaseTableIfFullyBilled(order);
+
+        // Inventory is deducted asynchronously from the BILLED event
+        orderEventPublisher.publish(orderEventPublisher.billed(order, savedBill.getId()));
+
+        return savedBill;
+    }
+
+    /**
+     * Generate a combined bill for all completed orders of a table
+     * This combines all orders into one bill
+     */
+    public Bill generateCombinedBillForTable(UUID tableId, Map<String, Object> request) {
+        // Get the most recent bill for this table to determine the cutoff time
+        // Only include orders created after the last bill was generated
+        List<Bill> previousBills = billRepository.findBillsByTableId(tableId);
+        final LocalDateTime lastBillTime;
+
+        if (!previousBills.isEmpty()) {
+            // Find the most recent bill (should be first in DESC order)
+            Bill lastBill = previousBills.get(0);
+            lastBillTime = lastBill.getGeneratedAt();
+        } else {
+            lastBillTime = null;
+        }
+
+        // Get all completed orders for this table that don't have bills yet
+        List<Order> completedOrders = orderRepository.findCompletedOrdersByTableId(tableId);
+
+        if (completedOrders.isEmpty()) {
+            throw new RuntimeException("No completed orders found for this table");
+        }
+
+        // Filter out orders that already have bills AND orders created before the last bill
+        final LocalDateTime cutoffTime = lastBillTime;
+        List<Order> ordersWithoutBills = completedOrders.stream()
+                .filter(order -> {
+                    // Check if order already has a bill
+                    Optional<Bill> existingBill = billRepository.findByOrderId(order.getId());
+                    if (existingBill.isPresent()) {
+                        return false; // Skip orders that already have bills
+                    }
+
+                    // If there was a previous bill, only include orders created after it
+                    if (cutoffTime != null && order.getCreatedAt() != null) {
+                        return order.getCreatedAt().isAfter(cutoffTime);
+                    }
+
+                    // If no previous bill, include all unbilled orders
+                    return true;
+                })
+                .toList();
+
+        if (ordersWithoutBills.isEmpty()) {
+            throw new RuntimeException("No new orders found for this table since the last bill");
+        }
+
+        Customer customer = customerOf(request);
+        boolean isInterState = isInterState(customer);
+        BillCalculator.BillComputation totals = BillCalculator.compute(ordersWithoutBills, isInterState, discountOf(request));
+
+        // Use the first order as the primary order for the bill
+        // In a real scenario, you might want to create a separate TableBill entity
+        Order primaryOrder = ordersWithoutBills.get(0);
+
+        // Special status to identify combined bills
+        Bill savedBill = billRepository.save(newBill(primaryOrder, customer, totals, "COMBINED_BILL"));
+
+        // Record exactly which orders this combined bill covers
+        List<BillOrder> links = new ArrayList<>();
+        for (Order order : ordersWithoutBills) {
+            links.add(BillOrder.builder().bill(savedBill).order(order).build());
+        }
+        billOrderRepository.saveAll(links);
+
+        // Mark all orders as billed (you might want to add a field for this)
+        // For now, we'll create individual bills for each order to maintain data integrity
+        // But the combined bill represents the total
+
+        // Create individual bills for each order (for tracking)
+        for (Order order : ordersWithoutBills) {
+            if (billRepository.findByOrderId(order.getId()).isEmpty()) {
+                // Create a reference bill for each order
+                Bill orderBill = Bill.builder()
+                        .order(order)
+                        .customer(customer)
+                        .totalAmount(order.getTotalAmount())
+                        .tax(0.0) // Tax already calculated in combined bill
+                        .discountAmount(0.0)
+                        .grandTotal(order.getTotalAmount())
+                        .generatedAt(LocalDateTime.now())
+                        .companyGstin(RESTAURANT_GSTIN)
+                        .customerGstin(customer != null ? customer.getGstin() : null)
+                        .cgst(0.0)
+                        .sgst(0.0)
+                        .igst(0.0)
+                        .placeOfSupply(placeOfSupply(customer))
+                        .isInterState(isInterState)
+                        .paymentStatus("COMBINED") // Special status for combined bills
+                        .paidAmount(0.0)
+                        .pendingAmount(0.0)
+                        .build();
+                billRepository.save(orderBill);
+            }
+        }
+
+        // Mark table as vacant after bill is generated
+        if (primaryOrder.getTable() != null) {
+            TableEntity table = primaryOrder.getTable();
+            table.setOccupied(false);
+            tableRepository.save(table);
+        }
+        tableSessionRegistry.refreshTableAfterCommit(tableId);
+
+        // Inventory is deducted asynchronously from the BILLED events
+        for (Order order : ordersWithoutBills) {
+            orderEventPublisher.publish(orderEventPublisher.billed(order, savedBill.getId()));
+        }
+
+        return savedBill;
+    }
+
+    private Bill newBill(Order order, Customer customer, BillCalculator.BillComputation totals, String paymentStatus) {
+        return Bill.builder()
+                .order(order)
+                .customer(customer)
+                .totalAmount(totals.taxableAmount())
+                .tax(totals.tax())
+                .discountAmount(totals.discountAmount())
+                .grandTotal(totals.grandTotal())
+                .generatedAt(LocalDateTime.now())
+                .companyGstin(RESTAURANT_GSTIN)
+                .customerGstin(customer != null ? customer.getGstin() : null)
+                .cgst(totals.cgst())
+                .sgst(totals.sgst())
+                .igst(totals.igst())
+                .placeOfSupply(placeOfSupply(customer))
+                .isInterState(isInterState(customer))
+                .paymentStatus(paymentStatus)
+                .paidAmount(0.0)
+                .pendingAmount(totals.grandTotal())
+                .build();
+    }
+
+    // Mark the table vacant once none of its completed orders is left unbilled
+    private void releaseTableIfFullyBilled(Order order) {
+        if (order.getTable() == null) {
+            return;
+        }
+        List<Order> otherCompletedOrders = orderRepository.findCompletedOrdersByTableId(order.getTable().getId());
+        boolean hasOtherUnbilledOrders = false;
+        for (Order otherOrder : otherCompletedOrders) {
+            if (!otherOrder.getId().equals(order.getId())
+                    && billRepository.findByOrderId(otherOrder.getId()).isEmpty()) {
+                hasOtherUnbilledOrders = true;
+                break;
+            }
+        }
+
+        if (!hasOtherUnbilledOrders) {
+            TableEntity table = order.getTable();
+            table.setOccupied(false);
+            tableRepository.save(table);
+        }
+        tableSessionRegistry.refreshTableAfterCommit(order.getTable().getId());
+    }
+
+    private Customer customerOf(Map<String, Object> request) {
+        if (request == null || !request.containsKey("customerId")) {
+            return null;
+        }
+        UUID customerId = UUID.fromString(request.get("customerId").toString());
+        return customerRepository.findById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+    }
+
+    private static double discountOf(Map<String, Object> request) {
+        return (request != null && request.containsKey("discountAmount"))
+                ? Double.parseDouble(request.get("discountAmount").toString())
+                : 0.0;
+    }
+
+    private static boolean isInterState(Customer customer) {
+        return customer != null && customer.getState() != null && !customer.getState().equals(RESTAURANT_STATE);
+    }
+
+    private static String placeOfSupply(Customer customer) {
+        return isInterState(customer) ? customer.getState() : RESTAURANT_STATE;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relays order events between app instances over Postgres LISTEN/NOTIFY, so WebSocket clients
+ * connected to any node see orders from every node without an external broker.
+ * Events published on this node are queued and flushed every cluster.bus.flush-interval-ms as
+ * batched NOTIFY payloads; a dedicated listener connection receives other nodes' batches and
+ * delivers them to local subscribers. Each node drops its own batches and any event whose sequence
+ * it has already relayed or delivered. Sequences are outbox ids, unique across the cluster, so this
+ * also drops an event that another node re-dispatches after it was first sent from elsewhere.
+ * The listener holds one pooled connection.
+ * Enable with cluster.bus.enabled=true when running more than one instance.
+ */
+@Service
+@ConditionalOnProperty(name = "cluster.bus.enabled", havingValue = "true")
+public class ClusterEventBus implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterEventBus.class);
+
+    // Postgres rejects NOTIFY payloads of 8000 bytes or more; leave room for the envelope
+    private static final int MAX_PAYLOAD_BYTES = 7500;
+
+    private static final int SEEN_WINDOW = 10_000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderEventPublisher orderEventPublisher;
+
+    @Autowired
+    private TableSessionRegistry tableSessionRegistry;
+
+    @Autowired
+    private LiveSalesCounters liveSalesCounters;
+
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
+    @Value("${cluster.bus.channel:restrosuite_order_events}")
+    private String channel;
+
+    @Value("${cluster.bus.flush-interval-ms:20}")
+    private long flushIntervalMs;
+
+    private final UUID nodeId = UUID.randomUUID();
+    private final ConcurrentLinkedQueue<RelayedEvent> outbound = new ConcurrentLinkedQueue<>();
+    // Recently relayed or delivered sequences from any node; a window rather than a high-water mark
+    // because outbox rows committed concurrently can be dispatched slightly out of sequence order
+    private final Set<Long> seen = Collections.synchronizedSet(newSeenWindow());
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cluster-bus-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    /**
+     * An order event plus the routing data that is not part of its JSON form.
+     */
+    public record RelayedEvent(OrderEvent event, Set<String> stations) {
+    }
+
+    /**
+     * One NOTIFY payload: a batch of events from a single node, in publish order.
+     */
+    public record Batch(UUID node, List<RelayedEvent> events) {
+    }
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        Thread listener = new Thread(this::listen, "cluster-bus-listener");
+        listener.setDaemon(true);
+        listener.start();
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Cluster event bus started on channel {} as node {}", channel, nodeId);
+    }
+
+    /**
+     * Queue a locally published event for the other nodes.
+     */
+    public void relay(OrderEvent event) {
+        seen.add(event.getSequence());
+        outbound.add(new RelayedEvent(event, event.getStations()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        flusher.shutdown();
+        flush();
+    }
+
+    private void flush() {
+        try {
+            List<RelayedEvent> batch = new ArrayList<>();
+            int batchBytes = 0;
+            RelayedEvent next;
+            while ((next = outbound.poll()) != null) {
+                RelayedEvent relayed = fitted(next);
+                int size = serialize(new Batch(nodeId, List.of(relayed))).length;
+                if (!batch.isEmpty() && batchBytes + size > MAX_PAYLOAD_BYTES) {
+                    notifyBatch(batch);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(relayed);
+                batchBytes += size;
+            }
+            if (!batch.isEmpty()) {
+                notifyBatch(batch);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to relay order events to other nodes: {}", e.getMessage());
+        }
+    }
+
+    // Events too large for one NOTIFY are relayed without their lines; clients reload that order
+    private RelayedEvent fitted(RelayedEvent relayed) {
+        if (relayed.event().getLines() == null
+                || serialize(new Batch(nodeId, List.of(relayed))).length <= MAX_PAYLOAD_BYTES) {
+            return relayed;
+        }
+        OrderEvent trimmed = relayed.event().toBuilder().lines(null).linesOmitted(true).build();
+        return new RelayedEvent(trimmed, relayed.stations());
+    }
+
+    private void notifyBatch(List<RelayedEvent> events) {
+        String payload = new String(serialize(new Batch(nodeId, events)), StandardCharsets.UTF_8);
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, payload);
+    }
+
+    private byte[] serialize(Batch batch) {
+        try {
+            return objectMapper.writeValueAsBytes(batch);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize order events: " + e.getMessage(), e);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(500);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cluster bus listener lost its connection, retrying: {}", e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Set<Long> newSeenWindow() {
+        return Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > SEEN_WINDOW;
+            }
+        });
+    }
+
+    private void receive(String payload) {
+        Batch batch;
+        try {
+            batch = objectMapper.readValue(payload, Batch.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cluster bus payload: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(batch.node())) {
+            return;
+        }
+        List<OrderEvent> delivered = new ArrayList<>(batch.events().size());
+        for (RelayedEvent relayed : batch.events()) {
+            OrderEvent event = relayed.event();
+            if (!seen.add(event.getSequence())) {
+                continue;
+            }
+            event.setStations(relayed.stations());
+            orderEventPublisher.deliver(event);
+            if (event.getTableId() != null) {
+                tableSessionRegistry.refreshTable(event.getTableId());
+            }
+            delivered.add(event);
+        }
+        if (!delivered.isEmpty()) {
+            liveSalesCounters.consume(delivered);
+            analyticsCache.consume(delivered);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.example.restrosuite.entity.*;
+import com.example.restrosuite.repository.BillRepository;
+import com.example.restrosuite.repository.OrderRepository;
+import com.example.restrosuite.repository.TableRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Customer (QR) add-to-order. Submissions for the same table are serialized so that phones
+ * ordering at once all land on one active order with an exact total: a striped in-process lock
+ * keeps same-node requests from queueing on the database, and the table row is locked for update
+ * inside the transaction so requests arriving on other nodes serialize as well.
+ * Tables hashing to different stripes never wait on each other.
+ * Retries carrying the same Idempotency-Key are answered from the {@link IdempotencyStore}.
+ */
+@Service
+public class CustomerOrderService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+
+    private static final TypeReference<Map<String, Object>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TableRepository tableRepository;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private MenuCatalogService menuCatalogService;
+
+    @Autowired
+    private TableSessionRegistry tableSessionRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private OrderEventPublisher orderEventPublisher;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ReentrantLock[] tableLocks = new ReentrantLock[LOCK_STRIPES];
+
+    public CustomerOrderService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            tableLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Outcome of a submission. When replayed, response is the stored original.
+     */
+    public record PlacedOrder(Map<String, Object> response, boolean replayed) {
+    }
+
+    /**
+     * Add items to the table's active order, creating it if there is none.
+     * The lock is held until the transaction has committed, so the next submission for the
+     * table always sees this one's order and total.
+     * With an idempotency key, a submission whose key was already accepted for this table
+     * returns the original response without touching the order.
+     *
+     * @throws OrderRejectedException when the order cannot be accepted (unavailable item,
+     *                                previous session not billed yet); nothing is persisted
+     */
+    public PlacedOrder placeOrder(UUID tableId, List<Map<String, Object>> itemsData, String idempotencyKey) {
+        String storeKey = null;
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new OrderRejectedException("Idempotency-Key must be at most "
+                        + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+            }
+            storeKey = "customer-order:" + tableId + ":" + idempotencyKey;
+
+            // Fast path for retries of a submission that has already completed
+            Optional<String> stored = idempotencyStore.find(storeKey);
+            if (stored.isPresent()) {
+                return replay(stored.get());
+            }
+        }
+
+        String key = storeKey;
+        ReentrantLock lock = lockFor(tableId);
+        lock.lock();
+        try {
+            return new TransactionTemplate(transactionManager)
+                    .execute(status -> addItems(tableId, itemsData, key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(UUID tableId) {
+        return tableLocks[Math.floorMod(tableId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private PlacedOrder addItems(UUID tableId, List<Map<String, Object>> itemsData, String idempotencyKey) {
+        TableEntity table = tableRepository.findByIdForUpdate(tableId)
+                .orElseThrow(() -> new RuntimeException("Table not found"));
+
+        // Checked again under the table lock: a duplicate may have been in flight during the fast path
+        if (idempotencyKey != null) {
+            Optional<String> stored = idempotencyStore.find(idempotencyKey);
+            if (stored.isPresent()) {
+                return replay(stored.get());
+            }
+        }
+
+        // Check for existing active order
+        Optional<Order> existingOrderOpt = orderRepository.findLatestActiveOrderByTableId(tableId);
+        Order order;
+        boolean isNewOrder = false;
+
+        if (existingOrderOpt.isPresent()) {
+            // Add items to existing order
+            order = existingOrderOpt.get();
+        } else {
+            // Before creating a new order, check if there are unbilled completed orders
+            // Session should remain active until bills are generated
+            List<Order> completedOrders = orderRepository.findCompletedOrdersByTableId(tableId);
+            boolean hasUnbilledOrders = false;
+            for (Order completedOrder : completedOrders) {
+                Optional<Bill> bill = billRepository.findByOrderId(completedOrder.getId());
+                if (bill.isEmpty()) {
+                    hasUnbilledOrders = true;
+                    break;
+                }
+            }
+
+            if (hasUnbilledOrders) {
+                // Cannot create new order - previous session's bills not generated yet
+                Map<String, Object> error = new HashMap<>();
+                error.put("error", "Cannot create new order. Please wait for the previous orders to be billed first.");
+                error.put("hasUnbilledOrders", true);
+                throw new OrderRejectedException(error);
+            }
+
+            // Create new order - only allowed if all previous orders are billed
+            Outlet outlet = table.getOutlet();
+            order = Order.builder()
+                    .table(table)
+                    .outlet(outlet)
+                    .status("CREATED")
+                    .createdAt(LocalDateTime.now())
+                    .totalAmount(0)
+                    .items(new ArrayList<>())
+                    .build();
+            isNewOrder = true;
+
+            // Mark table as occupied
+            if (!table.isOccupied()) {
+                table.setOccupied(true);
+                tableRepository.save(table);
+            }
+        }
+
+        // Process new items
+        double additionalTotal = 0;
+        List<OrderItem> newOrderItems = new ArrayList<>();
+
+        // Existing lines indexed by signature, so each incoming item merges in O(1)
+        Map<LineKey, OrderItem> linesByKey = new HashMap<>();
+        Set<LineKey> changedLines = new HashSet<>();
+        for (OrderItem existingItem : order.getItems()) {
+            linesByKey.put(LineKey.of(existingItem), existingItem);
+        }
+
+        for (Map<String, Object> i : itemsData) {
+            UUID menuId = UUID.fromString(i.get("menuItemId").toString());
+            int qty = Integer.parseInt(i.get("quantity").toString());
+
+            MenuItem menuItem = menuCatalogService.findMenuItem(menuId)
+                    .orElseThrow(() -> new RuntimeException("Menu item not found: " + menuId));
+
+            if (!menuItem.isAvailable()) {
+                throw new OrderRejectedException("Menu item " + menuItem.getName() + " is not available");
+            }
+
+            double basePrice = menuItem.getPrice();
+
+            // Process modifiers if provided
+            List<OrderItemModifier> modifiers = new ArrayList<>();
+            List<UUID> modifierIds = new ArrayList<>();
+            double modifierTotal = 0.0;
+            if (i.containsKey("modifiers") && i.get("modifiers") != null) {
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> modifierDataList = (List<Map<String, Object>>) i.get("modifiers");
+
+                for (Map<String, Object> modifierData : modifierDataList) {
+                    UUID modifierId = UUID.fromString(modifierData.get("modifierId").toString());
+                    MenuModifier menuModifier = menuCatalogService.findModifier(modifierId)
+                            .orElseThrow(() -> new RuntimeException("Menu modifier not found: " + modifierId));
+
+                    if (!menuModifier.getIsActive()) {
+                        throw new OrderRejectedException("Modifier " + menuModifier.getName() + " is not available");
+                    }
+
+                    OrderItemModifier orderItemModifier = OrderItemModifier.builder()
+                            .menuModifier(menuModifier)
+                            .price(menuModifier.getPrice())
+                            .build();
+                    modifiers.add(orderItemModifier);
+                    modifierIds.add(modifierId);
+                    modifierTotal += menuModifier.getPrice();
+                }
+            }
+
+            double unitPrice = basePrice + modifierTotal;
+            additionalTotal += unitPrice * qty;
+
+            // Same item with the same modifier set collapses into one line, unless prices changed since it was added
+            LineKey key = LineKey.of(menuId, modifierIds);
+            OrderItem existingItem = linesByKey.get(key);
+            if (existingItem != null && Double.compare(unitPriceOf(existingItem), unitPrice) == 0) {
+                existingItem.setQuantity(existingItem.getQuantity() + qty);
+                changedLines.add(key);
+                continue;
+            }
+
+            OrderItem newItem = OrderItem.builder()
+                    .menuItem(menuItem)
+                    .quantity(qty)
+                    .price(basePrice) // Store base price per unit
+                    .modifiers(modifiers)
+                    .order(order)
+                    .build();
+
+            // Set back reference for modifiers
+            for (OrderItemModifier modifier : modifiers) {
+                modifier.setOrderItem(newItem);
+            }
+
+            newOrderItems.add(newItem);
+            linesByKey.put(key, newItem);
+            changedLines.add(key);
+        }
+
+        // Add new items to order
+        order.getItems().addAll(newOrderItems);
+
+        // Update total amount
+        order.setTotalAmount(order.getTotalAmount() + additionalTotal);
+
+        Order savedOrder = orderRepository.save(order);
+        tableSessionRegistry.refreshTableAfterCommit(tableId);
+
+        OrderEvent event;
+        if (isNewOrder) {
+            event = orderEventPublisher.created(savedOrder);
+        } else {
+            // Lines are taken from the saved order so merged-in new lines carry their ids
+            List<OrderItem> touched = new ArrayList<>();
+            for (OrderItem item : savedOrder.getItems()) {
+                if (changedLines.contains(LineKey.of(item))) {
+                    touched.add(item);
+                }
+            }
+            event = orderEventPublisher.itemsAdded(savedOrder, touched);
+        }
+        // Broadcast order update to all connected clients once committed
+        orderEventPublisher.publish(event);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("orderId", savedOrder.getId());
+        response.put("isNewOrder", isNewOrder);
+        response.put("message", isNewOrder ? "Order placed successfully!" : "Items added to existing order!");
+        response.put("totalAmount", savedOrder.getTotalAmount());
+
+        if (idempotencyKey != null) {
+            idempotencyStore.save(idempotencyKey, writeResponse(response));
+        }
+        return new PlacedOrder(response, false);
+    }
+
+    private static double unitPriceOf(OrderItem item) {
+        double unitPrice = item.getPrice();
+        for (OrderItemModifier modifier : item.getModifiers()) {
+            unitPrice += modifier.getPrice();
+        }
+        return unitPrice;
+    }
+
+    /**
+     * Canonical order line signature: menu item plus its modifier ids in sorted order.
+     */
+    private record LineKey(UUID menuItemId, List<UUID> modifierIds) {
+
+        static LineKey of(UUID menuItemId, List<UUID> modifierIds) {
+            List<UUID> sorted = new ArrayList<>(modifierIds);
+            Collections.sort(sorted);
+            return new LineKey(menuItemId, sorted);
+        }
+
+        static LineKey of(OrderItem item) {
+            List<UUID> modifierIds = new ArrayList<>();
+            for (OrderItemModifier modifier : item.getModifiers()) {
+                if (modifier.getMenuModifier() != null) {
+                    modifierIds.add(modifier.getMenuModifier().getId());
+                }
+            }
+            UUID menuItemId = item.getMenuItem() != null ? item.getMenuItem().getId() : null;
+            return of(menuItemId, modifierIds);
+        }
+    }
+
+    private String writeResponse(Map<String, Object> response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to store order response: " + e.getMessage(), e);
+        }
+    }
+
+    private PlacedOrder replay(String responseJson) {
+        try {
+            return new PlacedOrder(objectMapper.readValue(responseJson, RESPONSE_TYPE), true);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read stored order response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A customer order that was refused as a whole; the transaction is rolled back and the
+     * body is returned to the caller as a 400.
+     */
+    public static class OrderRejectedException extends RuntimeException {
+
+        private final Map<String, Object> body;
+
+        public OrderRejectedException(String message) {
+            this(Map.of("error", message));
+        }
+
+        public OrderRejectedException(Map<String, Object> body) {
+            super(String.valueOf(body.get("error")));
+            this.body = body;
+        }
+
+        public Map<String, Object> getBody() {
+            return body;
+        }
+    }
+}
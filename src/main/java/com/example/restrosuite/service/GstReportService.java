@@ -0,0 +1,306 @@
+package com.example.restrosuite.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * GSTR-1 style aggregation over the bills generated in a period, in four sections: B2B invoices
+ * (customer GSTIN present, one row per invoice), B2C supplies per place of supply, HSN-wise
+ * summary and per-state totals. Invoice, B2C and state figures are the taxable value and
+ * CGST/SGST/IGST stored on each bill, so the return matches the invoices as issued. Only the
+ * HSN section expands bills into order lines and taxes them per line at the item rate, as
+ * {@link BillCalculator} does. The per-order reference rows written with a combined bill are
+ * left out, since the combined bill already covers their orders. Everything is computed by one
+ * SQL statement; result rows are read with a cursor and written straight to the response as
+ * JSON or CSV, so neither bills nor the B2B invoice list are ever held in memory.
+ */
+@Service
+public class GstReportService {
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_CSV = "csv";
+
+    public static final String SECTION_B2B = "b2b";
+    public static final String SECTION_B2CS = "b2cs";
+    public static final String SECTION_HSN = "hsn";
+    public static final String SECTION_STATE = "state";
+
+    private static final List<String> SECTIONS = List.of(SECTION_B2B, SECTION_B2CS, SECTION_HSN, SECTION_STATE);
+
+    private static final String GSTR1_SQL = """
+            WITH bills AS (
+                SELECT b.id AS bill_id,
+                       b.order_id,
+                       b.generated_at,
+                       b.grand_total,
+                       NULLIF(TRIM(b.customer_gstin), '') AS customer_gstin,
+                       COALESCE(b.place_of_supply, '') AS place_of_supply,
+                       COALESCE(b.is_inter_state, false) AS inter_state,
+                       ROUND((COALESCE(b.total_amount, 0) * 100)::numeric) AS taxable_paise,
+                       ROUND((COALESCE(b.igst, 0) * 100)::numeric) AS igst_paise,
+                       ROUND((COALESCE(b.cgst, 0) * 100)::numeric) AS cgst_paise,
+                       ROUND((COALESCE(b.sgst, 0) * 100)::numeric) AS sgst_paise
+                FROM bill b
+                WHERE b.generated_at >= ? AND b.generated_at < ?
+                  AND b.payment_status IS DISTINCT FROM 'COMBINED'
+            ),
+            bill_sections AS (
+                SELECT CASE WHEN GROUPING(b2b_bill_id) = 0 THEN 0
+                            WHEN GROUPING(b2c_state) = 0 THEN 1
+                            ELSE 3 END AS section,
+                       customer_gstin, b2b_bill_id, generated_at, grand_total,
+                       COALESCE(b2c_state, place_of_supply) AS place_of_supply,
+                       NULL::text AS hsn_code,
+                       NULL::integer AS rate_bp,
+                       0::numeric AS quantity,
+                       SUM(taxable_paise) AS taxable_paise,
+                       SUM(igst_paise) AS igst_paise,
+                       SUM(cgst_paise) AS cgst_paise,
+                       SUM(sgst_paise) AS sgst_paise
+                FROM (SELECT bills.*,
+                             CASE WHEN customer_gstin IS NOT NULL THEN bill_id END AS b2b_bill_id,
+                             CASE WHEN customer_gstin IS NULL THEN place_of_supply END AS b2c_state
+                      FROM bills) t
+                GROUP BY GROUPING SETS (
+                    (b2b_bill_id, customer_gstin, generated_at, grand_total, place_of_supply),
+                    (b2c_state),
+                    (place_of_supply)
+                )
+                HAVING NOT (GROUPING(b2b_bill_id) = 0 AND b2b_bill_id IS NULL)
+                   AND NOT (GROUPING(b2c_state) = 0 AND b2c_state IS NULL)
+            ),
+            hsn_lines AS (
+                SELECT COALESCE(mi.hsn_code, 'N/A') AS hsn_code,
+                       CASE WHEN mi.tax_rate IS NULL OR mi.tax_rate <= 0 THEN ?
+                            ELSE ROUND((mi.tax_rate * 100)::numeric) END AS rate_bp,
+                       oi.quantity,
+                       (ROUND((oi.price * 100)::numeric) + COALESCE(m.modifier_paise, 0)) * oi.quantity AS amount_paise,
+                       bl.inter_state
+                FROM bills bl
+                LEFT JOIN bill_order bo ON bo.bill_id = bl.bill_id
+                JOIN order_item oi ON oi.order_id = COALESCE(bo.order_id, bl.order_id)
+                LEFT JOIN menu_item mi ON mi.id = oi.menu_item_id
+                LEFT JOIN LATERAL (
+                    SELECT SUM(ROUND((oim.price * 100)::numeric)) AS modifier_paise
+                    FROM order_item_modifier oim
+                    WHERE oim.order_item_id = oi.id
+                ) m ON true
+            )
+            SELECT * FROM bill_sections
+            UNION ALL
+            SELECT 2, NULL, NULL, NULL, NULL, NULL, hsn_code, rate_bp::integer,
+                   SUM(quantity),
+                   SUM(amount_paise),
+                   SUM(CASE WHEN inter_state THEN ROUND(amount_paise * rate_bp / 10000) ELSE 0 END),
+                   SUM(CASE WHEN inter_state THEN 0 ELSE ROUND(amount_paise * rate_bp / 20000) END),
+                   SUM(CASE WHEN inter_state THEN 0 ELSE ROUND(amount_paise * rate_bp / 20000) END)
+            FROM hsn_lines
+            GROUP BY hsn_code, rate_bp
+            ORDER BY section, generated_at, b2b_bill_id, place_of_supply, hsn_code, rate_bp
+            """;
+
+    private static final String CSV_HEADER = "section,customer_gstin,invoice_id,invoice_date,invoice_value,"
+            + "place_of_supply,hsn_code,rate,quantity,taxable_value,igst,cgst,sgst\n";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${gst.report.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * One aggregated row. Which fields are set depends on the section; amounts are in paise.
+     */
+    public record GstRow(String section, String customerGstin, String invoiceId, LocalDateTime invoiceDate,
+                         Double invoiceValue, String placeOfSupply, String hsnCode, Integer rateBasisPoints,
+                         long quantity, long taxablePaise, long igstPaise, long cgstPaise, long sgstPaise) {
+    }
+
+    private interface RowWriter {
+        void row(GstRow row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * Compute the report for bills generated in [from, to) and stream it to the given output.
+     */
+    public void write(LocalDateTime from, LocalDateTime to, String format, OutputStream out) throws IOException {
+        RowWriter writer = FORMAT_CSV.equals(format) ? csvWriter(out) : jsonWriter(from, to, out);
+        // Postgres only streams with a cursor inside a transaction
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        try {
+            tx.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(GSTR1_SQL);
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.valueOf(from));
+                ps.setTimestamp(2, Timestamp.valueOf(to));
+                ps.setInt(3, BillCalculator.DEFAULT_RATE_BASIS_POINTS);
+                return ps;
+            }, (ResultSet rs) -> {
+                try {
+                    writer.row(mapRow(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    private static GstRow mapRow(ResultSet rs) throws SQLException {
+        String section = SECTIONS.get(rs.getInt("section"));
+        Timestamp invoiceDate = rs.getTimestamp("generated_at");
+        Object invoiceId = rs.getObject("b2b_bill_id");
+        Object invoiceValue = rs.getObject("grand_total");
+        Object rate = rs.getObject("rate_bp");
+        return new GstRow(section,
+                rs.getString("customer_gstin"),
+                invoiceId != null ? invoiceId.toString() : null,
+                invoiceDate != null ? invoiceDate.toLocalDateTime() : null,
+                invoiceValue != null ? ((Number) invoiceValue).doubleValue() : null,
+                rs.getString("place_of_supply"),
+                rs.getString("hsn_code"),
+                rate != null ? ((Number) rate).intValue() : null,
+                rs.getLong("quantity"),
+                rs.getLong("taxable_paise"),
+                rs.getLong("igst_paise"),
+                rs.getLong("cgst_paise"),
+                rs.getLong("sgst_paise"));
+    }
+
+    private RowWriter jsonWriter(LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartObject();
+        json.writeStringField("from", from.toString());
+        json.writeStringField("to", to.toString());
+        return new RowWriter() {
+            // Index of the next section whose array has not been opened yet
+            private int nextSection;
+
+            @Override
+            public void row(GstRow row) throws IOException {
+                openThrough(SECTIONS.indexOf(row.section()));
+                json.writeStartObject();
+                switch (row.section()) {
+                    case SECTION_B2B -> {
+                        json.writeStringField("customerGstin", row.customerGstin());
+                        json.writeStringField("invoiceId", row.invoiceId());
+                        json.writeStringField("invoiceDate", row.invoiceDate().toString());
+                        json.writeNumberField("invoiceValue", BigDecimal.valueOf(BillCalculator.toPaise(row.invoiceValue()), 2));
+                        json.writeStringField("placeOfSupply", row.placeOfSupply());
+                    }
+                    case SECTION_HSN -> {
+                        json.writeStringField("hsnCode", row.hsnCode());
+                        json.writeNumberField("rate", BigDecimal.valueOf(row.rateBasisPoints(), 2));
+                        json.writeNumberField("quantity", row.quantity());
+                    }
+                    default -> json.writeStringField("placeOfSupply", row.placeOfSupply());
+                }
+                json.writeNumberField("taxableValue", BigDecimal.valueOf(row.taxablePaise(), 2));
+                json.writeNumberField("igst", BigDecimal.valueOf(row.igstPaise(), 2));
+                json.writeNumberField("cgst", BigDecimal.valueOf(row.cgstPaise(), 2));
+                json.writeNumberField("sgst", BigDecimal.valueOf(row.sgstPaise(), 2));
+                json.writeEndObject();
+            }
+
+            @Override
+            public void finish() throws IOException {
+                openThrough(SECTIONS.size());
+                json.writeEndObject();
+                json.close();
+            }
+
+            // Close the current section's array and open every section up to the given one,
+            // so empty sections still appear as []
+            private void openThrough(int section) throws IOException {
+                while (nextSection <= section) {
+                    if (nextSection > 0) {
+                        json.writeEndArray();
+                    }
+                    if (nextSection == SECTIONS.size()) {
+                        break;
+                    }
+                    json.writeArrayFieldStart(SECTIONS.get(nextSection));
+                    nextSection++;
+                }
+            }
+        };
+    }
+
+    private RowWriter csvWriter(OutputStream out) throws IOException {
+        Writer csv = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        csv.write(CSV_HEADER);
+        return new RowWriter() {
+            private final StringBuilder line = new StringBuilder(160);
+
+            @Override
+            public void row(GstRow row) throws IOException {
+                line.setLength(0);
+                line.append(row.section()).append(',');
+                appendField(row.customerGstin());
+                appendField(row.invoiceId());
+                appendField(row.invoiceDate() != null ? row.invoiceDate().toString() : null);
+                appendField(row.invoiceValue() != null
+                        ? BigDecimal.valueOf(BillCalculator.toPaise(row.invoiceValue()), 2).toPlainString() : null);
+                appendField(row.placeOfSupply());
+                appendField(row.hsnCode());
+                appendField(row.rateBasisPoints() != null
+                        ? BigDecimal.valueOf(row.rateBasisPoints(), 2).toPlainString() : null);
+                line.append(row.quantity()).append(',')
+                        .append(BigDecimal.valueOf(row.taxablePaise(), 2).toPlainString()).append(',')
+                        .append(BigDecimal.valueOf(row.igstPaise(), 2).toPlainString()).append(',')
+                        .append(BigDecimal.valueOf(row.cgstPaise(), 2).toPlainString()).append(',')
+                        .append(BigDecimal.valueOf(row.sgstPaise(), 2).toPlainString()).append('\n');
+                csv.write(line.toString());
+            }
+
+            @Override
+            public void finish() throws IOException {
+                csv.flush();
+            }
+
+            private void appendField(String value) {
+                if (value != null) {
+                    if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+                    } else {
+                        line.append(value);
+                    }
+                }
+                line.append(',');
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.restrosuite.service;
+
+import java.util.Optional;
+
+/**
+ * Remembers the response of a request by its idempotency key so retries can be replayed
+ * instead of executed again. Entries expire after idempotency.ttl-seconds.
+ * Select the implementation with idempotency.store: memory (default, per node) or jdbc (shared).
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Stored response body (JSON) for the key, if present and not expired.
+     */
+    Optional<String> find(String key);
+
+    /**
+     * Remember the response for the key. When called inside a transaction the entry only
+     * becomes visible if that transaction commits.
+     */
+    void save(String key, String responseJson);
+
+    /**
+     * Drop expired entries.
+     *
+     * @return number of entries removed
+     */
+    int purgeExpired();
+}
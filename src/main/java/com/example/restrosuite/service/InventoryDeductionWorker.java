@@ -0,0 +1,214 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.example.restrosuite.entity.Bill;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.StockMovement;
+import com.example.restrosuite.repository.BillRepository;
+import com.example.restrosuite.repository.StockMovementRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deducts stock for bills off the billing request path.
+ * BILLED events from the outbox queue one stock_deduction_task per bill; the worker then takes
+ * due tasks in micro-batches, records each bill's SALE movements and applies the usage summed
+ * per ingredient across the batch in one set-based update. A failed batch is retried one bill
+ * at a time so a single bad bill cannot hold up the rest, and failed bills back off exponentially.
+ * Bills that already have SALE movements are skipped, so a redelivered event never deducts twice.
+ */
+@Service
+@org.springframework.core.annotation.Order(20)
+public class InventoryDeductionWorker implements OutboxConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryDeductionWorker.class);
+
+    private static final long MAX_BACKOFF_SECONDS = 300;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${inventory.deduction-batch-size:100}")
+    private int batchSize;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter deductedBills;
+    private final Counter failedAttempts;
+
+    public InventoryDeductionWorker(MeterRegistry meterRegistry) {
+        Gauge.builder("inventory.deduction.pending", pending, AtomicLong::get)
+                .description("Bills waiting for stock deduction")
+                .register(meterRegistry);
+        Gauge.builder("inventory.deduction.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest bill waiting for stock deduction")
+                .register(meterRegistry);
+        this.deductedBills = Counter.builder("inventory.deduction.bills")
+                .description("Bills whose stock has been deducted")
+                .register(meterRegistry);
+        this.failedAttempts = Counter.builder("inventory.deduction.failures")
+                .description("Failed stock deduction attempts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a deduction task for every billed bill in the batch. Runs in its own dispatcher transaction.
+     */
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    public void consume(List<OrderEvent> events) {
+        Set<UUID> billIds = new LinkedHashSet<>();
+        for (OrderEvent event : events) {
+            if (OrderEvent.BILLED.equals(event.getType()) && event.getBillId() != null) {
+                billIds.add(event.getBillId());
+            }
+        }
+        if (billIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> args = new ArrayList<>(billIds.size());
+        for (UUID billId : billIds) {
+            args.add(new Object[]{billId, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO stock_deduction_task (bill_id, created_at, attempts, next_attempt_at) "
+                + "VALUES (?, ?, 0, ?) ON CONFLICT (bill_id) DO NOTHING", args);
+    }
+
+    /**
+     * Process one micro-batch of due deduction tasks.
+     *
+     * @return number of bills deducted
+     */
+    public int processDueDeductions() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int deducted = 0;
+        try {
+            Integer count = tx.execute(status -> deduct(lockDueTasks()));
+            deducted = count != null ? count : 0;
+        } catch (RuntimeException e) {
+            log.warn("Stock deduction batch failed, retrying bills one by one: {}", e.getMessage());
+            for (UUID billId : findDueTaskIds()) {
+                try {
+                    Integer count = tx.execute(status -> deduct(lockTask(billId)));
+                    deducted += count != null ? count : 0;
+                } catch (RuntimeException billError) {
+                    markFailed(billId, billError);
+                }
+            }
+        }
+        deductedBills.increment(deducted);
+        refreshLag();
+        return deducted;
+    }
+
+    private int deduct(List<UUID> billIds) {
+        if (billIds.isEmpty()) {
+            return 0;
+        }
+        Set<UUID> alreadyDeducted = new HashSet<>(
+                stockMovementRepository.findReferenceIdsWithMovements(StockMovement.SALE, billIds));
+
+        Map<UUID, List<OrderItem>> itemsByBill = new LinkedHashMap<>();
+        for (Bill bill : billRepository.findAllById(billIds)) {
+            if (alreadyDeducted.contains(bill.getId())) {
+                continue;
+            }
+            List<OrderItem> items = new ArrayList<>();
+            for (Order order : invoiceService.getOrdersForBill(bill)) {
+                items.addAll(order.getItems());
+            }
+            itemsByBill.put(bill.getId(), items);
+        }
+        inventoryService.deductForBills(itemsByBill);
+
+        List<Object[]> args = new ArrayList<>(billIds.size());
+        for (UUID billId : billIds) {
+            args.add(new Object[]{billId});
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM stock_deduction_task WHERE bill_id = ?", args);
+        return itemsByBill.size();
+    }
+
+    // Tasks held by another node's worker are skipped rather than waited for
+    private List<UUID> lockDueTasks() {
+        return jdbcTemplate.queryForList("SELECT bill_id FROM stock_deduction_task WHERE next_attempt_at <= ? "
+                + "ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED", UUID.class, LocalDateTime.now(), batchSize);
+    }
+
+    private List<UUID> lockTask(UUID billId) {
+        return jdbcTemplate.queryForList("SELECT bill_id FROM stock_deduction_task WHERE bill_id = ? "
+                + "FOR UPDATE SKIP LOCKED", UUID.class, billId);
+    }
+
+    private List<UUID> findDueTaskIds() {
+        return jdbcTemplate.queryForList("SELECT bill_id FROM stock_deduction_task WHERE next_attempt_at <= ? "
+                + "ORDER BY created_at LIMIT ?", UUID.class, LocalDateTime.now(), batchSize);
+    }
+
+    private void markFailed(UUID billId, RuntimeException error) {
+        failedAttempts.increment();
+        Integer attempts = jdbcTemplate.queryForObject(
+                "SELECT attempts FROM stock_deduction_task WHERE bill_id = ?", Integer.class, billId);
+        int nextAttempts = (attempts != null ? attempts : 0) + 1;
+        long backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(nextAttempts, 20));
+        String message = String.valueOf(error.getMessage());
+        jdbcTemplate.update("UPDATE stock_deduction_task SET attempts = ?, next_attempt_at = ?, last_error = ? "
+                        + "WHERE bill_id = ?", nextAttempts, LocalDateTime.now().plusSeconds(backoffSeconds),
+                message.length() > 1000 ? message.substring(0, 1000) : message, billId);
+        log.error("Stock deduction failed for bill {} (attempt {}), retrying in {}s: {}",
+                billId, nextAttempts, backoffSeconds, message);
+    }
+
+    private void refreshLag() {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest FROM stock_deduction_task");
+        pending.set(((Number) row.get("pending")).longValue());
+        Object oldest = row.get("oldest");
+        lagSeconds.set(oldest instanceof Timestamp ts
+                ? Math.max(0, Duration.between(ts.toLocalDateTime(), LocalDateTime.now()).getSeconds())
+                : 0);
+    }
+}
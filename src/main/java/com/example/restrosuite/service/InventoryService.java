@@ -0,0 +1,409 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.Ingredient;
+import com.example.restrosuite.entity.IngredientStockShard;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.StockMovement;
+import com.example.restrosuite.repository.IngredientRepository;
+import com.example.restrosuite.repository.IngredientStockShardRepository;
+import com.example.restrosuite.repository.MenuIngredientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recipe lookup and the ingredient stock ledger.
+ * Recipes (menu item -> ingredient links) are held in an index keyed by menu item id that is
+ * rebuilt lazily after links change. Every stock change is appended to the stock_movement
+ * ledger and applied to Ingredient.quantity with an atomic increment, or, for hot ingredients,
+ * to one of its ingredient_stock_shard rows so concurrent bills do not queue on one row lock.
+ */
+@Service
+public class InventoryService {
+
+    @Autowired
+    private MenuIngredientRepository menuIngredientRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private IngredientStockShardRepository ingredientStockShardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${inventory.stock-shards:8}")
+    private int stockShards;
+
+    // null means "not loaded / invalidated"; rebuilt on next access
+    private volatile Map<UUID, List<RecipeLine>> recipeIndex;
+
+    // Bumped on every invalidation so a load that raced with a link change is not published
+    private final AtomicLong recipeGeneration = new AtomicLong();
+
+    // Ids of ingredients with striped stock; null means reload on next access
+    private volatile Set<UUID> hotStockIds;
+
+    // Bumped on every invalidation so a load that raced with a hotStock flag change is not published
+    private final AtomicLong hotStockGeneration = new AtomicLong();
+
+    public record RecipeLine(UUID ingredientId, double quantityRequired) {
+    }
+
+    /**
+     * Ingredients required to prepare one unit of the given menu item.
+     */
+    public List<RecipeLine> getRecipe(UUID menuItemId) {
+        return getRecipeIndex().getOrDefault(menuItemId, List.of());
+    }
+
+    /**
+     * Drop the recipe index so the next lookup reloads it. Call after menu-ingredient links change.
+     */
+    public void invalidateRecipeIndex() {
+        recipeGeneration.incrementAndGet();
+        recipeIndex = null;
+    }
+
+    /**
+     * Total quantity used per ingredient for the given order items, ordered by ingredient id
+     * so concurrent bills always lock ingredient rows in the same order.
+     */
+    public Map<UUID, Double> computeUsage(Collection<OrderItem> items) {
+        Map<UUID, Double> usage = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getMenuItem() == null) {
+                continue;
+            }
+            for (RecipeLine line : getRecipe(item.getMenuItem().getId())) {
+                usage.merge(line.ingredientId(), line.quantityRequired() * item.getQuantity(), Double::sum);
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Deduct stock for a micro-batch of bills. Each bill gets its own SALE ledger rows, while the
+     * stock projection is moved once per ingredient by the usage summed across all the bills.
+     */
+    @Transactional
+    public void deductForBills(Map<UUID, ? extends Collection<OrderItem>> itemsByBill) {
+        List<Movement> movements = new ArrayList<>();
+        itemsByBill.forEach((billId, items) -> computeUsage(items).forEach((ingredientId, used) ->
+                movements.add(new Movement(ingredientId, StockMovement.SALE, -used, billId))));
+        applyMovements(movements);
+    }
+
+    @Transactional
+    public void recordMovement(UUID ingredientId, String movementType, double delta, UUID referenceId) {
+        recordMovements(movementType, Map.of(ingredientId, delta), referenceId);
+    }
+
+    @Transactional
+    public void recordMovements(String movementType, Map<UUID, Double> deltas, UUID referenceId) {
+        List<Movement> movements = new ArrayList<>(deltas.size());
+        deltas.forEach((ingredientId, delta) -> movements.add(new Movement(ingredientId, movementType, delta, referenceId)));
+        applyMovements(movements);
+    }
+
+    private record Movement(UUID ingredientId, String movementType, double delta, UUID referenceId) {
+    }
+
+    /**
+     * Create an ingredient and book its opening stock as an ADJUSTMENT in the same transaction.
+     */
+    @Transactional
+    public Ingredient addIngredient(Ingredient ingredient) {
+        double openingQuantity = ingredient.getQuantity();
+        ingredient.setQuantity(0);
+        // Flushed so the ledger and shard rows written over JDBC can reference it
+        Ingredient saved = ingredientRepository.saveAndFlush(ingredient);
+        if (Boolean.TRUE.equals(saved.getHotStock())) {
+            ensureStockShards(saved.getId());
+            invalidateHotStockIds();
+        }
+        if (openingQuantity != 0) {
+            applyMovements(List.of(new Movement(saved.getId(), StockMovement.ADJUSTMENT, openingQuantity, null)));
+            saved.setQuantity(openingQuantity);
+        }
+        return saved;
+    }
+
+    /**
+     * Update an ingredient's details and set its stock to the counted quantity, booking the
+     * difference as an ADJUSTMENT. The shard rows and the ingredient row are locked (in the same
+     * order as compaction) while the current stock is read, so no concurrent movement can land
+     * between the read and the adjustment.
+     */
+    @Transactional
+    public Ingredient updateIngredient(UUID id, Ingredient changes) {
+        List<Double> shardQuantities = jdbcTemplate.queryForList(
+                "SELECT quantity FROM ingredient_stock_shard WHERE ingredient_id = ? ORDER BY shard FOR UPDATE",
+                Double.class, id);
+        Ingredient existing = ingredientRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Ingredient not found"));
+        double currentStock = existing.getQuantity();
+        for (Double quantity : shardQuantities) {
+            currentStock += quantity;
+        }
+
+        existing.setName(changes.getName());
+        existing.setUnit(changes.getUnit());
+        existing.setThreshold(changes.getThreshold());
+        boolean wasHot = Boolean.TRUE.equals(existing.getHotStock());
+        if (changes.getHotStock() != null) {
+            existing.setHotStock(changes.getHotStock());
+        }
+        Ingredient saved = ingredientRepository.saveAndFlush(existing);
+
+        boolean isHot = Boolean.TRUE.equals(saved.getHotStock());
+        if (isHot != wasHot) {
+            invalidateHotStockIds();
+            if (isHot) {
+                ensureStockShards(id);
+            } else {
+                // Fold pending shard deltas back once no new deltas can be routed to the shards
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        compactStockShards(id);
+                    }
+                });
+            }
+        }
+
+        // A manual stock count is booked as an adjustment for the difference
+        double delta = changes.getQuantity() - currentStock;
+        if (delta != 0) {
+            applyMovements(List.of(new Movement(id, StockMovement.ADJUSTMENT, delta, null)));
+        }
+        saved.setQuantity(changes.getQuantity());
+        return saved;
+    }
+
+    /**
+     * Append one ledger row per movement and move the stock projection by the net delta per
+     * ingredient, in ingredient id order. Both are written as JDBC batches in the caller's transaction.
+     */
+    private void applyMovements(List<Movement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> ledgerArgs = new ArrayList<>(movements.size());
+        Map<UUID, Double> netDeltas = new TreeMap<>();
+        for (Movement movement : movements) {
+            ledgerArgs.add(new Object[]{UUID.randomUUID(), movement.ingredientId(), movement.movementType(),
+                    movement.delta(), movement.referenceId(), now});
+            netDeltas.merge(movement.ingredientId(), movement.delta(), Double::sum);
+        }
+
+        Set<UUID> hot = getHotStockIds();
+        List<Object[]> projectionArgs = new ArrayList<>(netDeltas.size());
+        List<Object[]> shardArgs = new ArrayList<>();
+        netDeltas.forEach((ingredientId, delta) -> {
+            if (hot.contains(ingredientId)) {
+                int shard = ThreadLocalRandom.current().nextInt(stockShards);
+                shardArgs.add(new Object[]{delta, ingredientId, shard});
+            } else {
+                projectionArgs.add(new Object[]{delta, ingredientId});
+            }
+        });
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_movement (id, ingredient_id, movement_type, quantity, reference_id, created_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)", ledgerArgs);
+        if (!shardArgs.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(
+                    "UPDATE ingredient_stock_shard SET quantity = quantity + ? WHERE ingredient_id = ? AND shard = ?",
+                    shardArgs);
+            // Shard row missing (e.g. shard count raised since it was striped): apply to the base row
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    Object[] args = shardArgs.get(i);
+                    projectionArgs.add(new Object[]{args[0], args[1]});
+                }
+            }
+        }
+        if (!projectionArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE ingredient SET quantity = quantity + ? WHERE id = ?", projectionArgs);
+        }
+    }
+
+    /**
+     * Current stock of an ingredient: the base projection plus any pending shard deltas.
+     */
+    public double getCurrentStock(Ingredient ingredient) {
+        if (!Boolean.TRUE.equals(ingredient.getHotStock())) {
+            return ingredient.getQuantity();
+        }
+        double pending = 0.0;
+        for (IngredientStockShard shard : ingredientStockShardRepository.findByIngredientId(ingredient.getId())) {
+            pending += shard.getQuantity();
+        }
+        return ingredient.getQuantity() + pending;
+    }
+
+    /**
+     * Fold pending shard deltas into the given ingredients' quantity for display.
+     * Ingredient.quantity is not updatable, so this never writes back through the entity.
+     */
+    public List<Ingredient> withCurrentStock(List<Ingredient> ingredients) {
+        if (getHotStockIds().isEmpty()) {
+            return ingredients;
+        }
+        Map<UUID, Double> pending = new HashMap<>();
+        for (Object[] row : ingredientStockShardRepository.sumQuantityByIngredient()) {
+            pending.put((UUID) row[0], row[1] != null ? ((Number) row[1]).doubleValue() : 0.0);
+        }
+        for (Ingredient ingredient : ingredients) {
+            Double delta = pending.get(ingredient.getId());
+            if (delta != null) {
+                ingredient.setQuantity(ingredient.getQuantity() + delta);
+            }
+        }
+        return ingredients;
+    }
+
+    /**
+     * Make sure a hot ingredient has one row per shard. Existing rows are left untouched.
+     */
+    @Transactional
+    public void ensureStockShards(UUID ingredientId) {
+        Set<Integer> existing = new HashSet<>();
+        for (IngredientStockShard shard : ingredientStockShardRepository.findByIngredientId(ingredientId)) {
+            existing.add(shard.getShard());
+        }
+        List<IngredientStockShard> missing = new ArrayList<>();
+        for (int shard = 0; shard < stockShards; shard++) {
+            if (!existing.contains(shard)) {
+                missing.add(IngredientStockShard.builder()
+                        .ingredient(ingredientRepository.getReferenceById(ingredientId))
+                        .shard(shard)
+                        .quantity(0.0)
+                        .build());
+            }
+        }
+        ingredientStockShardRepository.saveAll(missing);
+    }
+
+    /**
+     * Drop the cached set of hot ingredient ids. Call after an ingredient's hotStock flag changes.
+     * Inside a transaction the set is dropped again once it completes, so a reload that read the
+     * flags before the change committed (or rolled back) is not kept.
+     */
+    public void invalidateHotStockIds() {
+        hotStockGeneration.incrementAndGet();
+        hotStockIds = null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    hotStockGeneration.incrementAndGet();
+                    hotStockIds = null;
+                }
+            });
+        }
+    }
+
+    /**
+     * Fold every ingredient's shard deltas back into Ingredient.quantity and reset the shards.
+     * Each ingredient is folded in its own short transaction with its shard rows locked, so
+     * concurrent deductions only wait for that one fold.
+     *
+     * @return number of ingredients compacted
+     */
+    public int compactStockShards() {
+        List<UUID> ingredientIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT ingredient_id FROM ingredient_stock_shard WHERE quantity <> 0", UUID.class);
+        for (UUID ingredientId : ingredientIds) {
+            compactStockShards(ingredientId);
+        }
+        return ingredientIds.size();
+    }
+
+    /**
+     * Fold one ingredient's shard deltas back into Ingredient.quantity, in a new transaction
+     * with its shard rows locked.
+     */
+    public void compactStockShards(UUID ingredientId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        tx.executeWithoutResult(status -> {
+            List<Double> shardQuantities = jdbcTemplate.queryForList(
+                    "SELECT quantity FROM ingredient_stock_shard WHERE ingredient_id = ? ORDER BY shard FOR UPDATE",
+                    Double.class, ingredientId);
+            double pending = 0.0;
+            for (Double quantity : shardQuantities) {
+                pending += quantity;
+            }
+            jdbcTemplate.update("UPDATE ingredient_stock_shard SET quantity = 0 WHERE ingredient_id = ?", ingredientId);
+            jdbcTemplate.update("UPDATE ingredient SET quantity = quantity + ? WHERE id = ?", pending, ingredientId);
+        });
+    }
+
+    private Set<UUID> getHotStockIds() {
+        Set<UUID> ids = hotStockIds;
+        if (ids == null) {
+            long generation = hotStockGeneration.get();
+            ids = Set.copyOf(ingredientRepository.findHotStockIds());
+            if (generation == hotStockGeneration.get()) {
+                hotStockIds = ids;
+            }
+        }
+        return ids;
+    }
+
+    private Map<UUID, List<RecipeLine>> getRecipeIndex() {
+        Map<UUID, List<RecipeLine>> index = recipeIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = recipeIndex;
+                if (index == null) {
+                    long generation = recipeGeneration.get();
+                    index = loadRecipeIndex();
+                    if (generation == recipeGeneration.get()) {
+                        recipeIndex = index;
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    private Map<UUID, List<RecipeLine>> loadRecipeIndex() {
+        Map<UUID, List<RecipeLine>> index = new HashMap<>();
+        for (Object[] row : menuIngredientRepository.findAllRecipeLines()) {
+            UUID menuItemId = (UUID) row[0];
+            UUID ingredientId = (UUID) row[1];
+            double quantityRequired = row[2] != null ? ((Number) row[2]).doubleValue() : 0.0;
+            index.computeIfAbsent(menuItemId, k -> new ArrayList<>())
+                    .add(new RecipeLine(ingredientId, quantityRequired));
+        }
+        index.replaceAll((k, v) -> List.copyOf(v));
+        return Map.copyOf(index);
+    }
+}
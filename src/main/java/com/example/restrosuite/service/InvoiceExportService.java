@@ -0,0 +1,142 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.Bill;
+import com.example.restrosuite.repository.BillRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams every invoice generated in a time range into a ZIP archive.
+ * Bills are read in (generated_at, id) keyset pages of ids only; each bill is then loaded in its
+ * own short read-only transaction, written as one ZIP entry and dropped, so at most one invoice is
+ * held in memory however long the range is. PDFs come from {@link InvoicePdfCache} and are
+ * copied into the archive straight from disk. The per-order rows of a combined bill (payment status
+ * COMBINED) are skipped; the combined bill itself is the invoice for those orders.
+ */
+@Service
+public class InvoiceExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceExportService.class);
+
+    public static final String FORMAT_PDF = "pdf";
+    public static final String FORMAT_TEXT = "text";
+
+    private static final DateTimeFormatter ENTRY_DATE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoicePdfCache invoicePdfCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invoice.export.page-size:500}")
+    private int pageSize;
+
+    private record BillKey(UUID id, LocalDateTime generatedAt) {
+    }
+
+    /**
+     * Write a ZIP of the invoices for bills generated in [from, to) to the given stream.
+     * Bills that fail to render are skipped and listed in an {@code export-errors.txt} entry.
+     *
+     * @return number of invoices written
+     */
+    public int writeZip(LocalDateTime from, LocalDateTime to, String format, OutputStream out) throws IOException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        List<UUID> failed = new ArrayList<>();
+        int written = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        BillKey cursor = null;
+        List<BillKey> page;
+        do {
+            page = nextPage(from, to, cursor);
+            for (BillKey key : page) {
+                String entryName = "invoice-" + ENTRY_DATE.format(key.generatedAt()) + "-" + key.id();
+                try {
+                    if (FORMAT_TEXT.equals(format)) {
+                        String text = tx.execute(status -> invoiceService.generateTextInvoice(load(key.id())));
+                        zip.putNextEntry(new ZipEntry(entryName + ".txt"));
+                        zip.write(text.getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        Path file = tx.execute(status -> invoicePdfCache.get(load(key.id())).file());
+                        zip.putNextEntry(new ZipEntry(entryName + ".pdf"));
+                        Files.copy(file, zip);
+                    }
+                    zip.closeEntry();
+                    written++;
+                } catch (RuntimeException e) {
+                    log.warn("Skipping bill {} in invoice export: {}", key.id(), e.getMessage());
+                    failed.add(key.id());
+                }
+            }
+            if (!page.isEmpty()) {
+                cursor = page.get(page.size() - 1);
+            }
+        } while (page.size() == pageSize);
+
+        if (!failed.isEmpty()) {
+            zip.putNextEntry(new ZipEntry("export-errors.txt"));
+            StringBuilder errors = new StringBuilder("Invoices that could not be rendered:\n");
+            for (UUID billId : failed) {
+                errors.append(billId).append('\n');
+            }
+            zip.write(errors.toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+        return written;
+    }
+
+    private Bill load(UUID billId) {
+        return billRepository.findById(billId).orElseThrow(() -> new RuntimeException("Bill not found"));
+    }
+
+    private List<BillKey> nextPage(LocalDateTime from, LocalDateTime to, BillKey after) {
+        if (after == null) {
+            return jdbcTemplate.query("SELECT id, generated_at FROM bill "
+                            + "WHERE generated_at >= ? AND generated_at < ? AND payment_status IS DISTINCT FROM 'COMBINED' "
+                            + "ORDER BY generated_at, id LIMIT ?",
+                    (rs, i) -> new BillKey(rs.getObject(1, UUID.class), rs.getTimestamp(2).toLocalDateTime()),
+                    Timestamp.valueOf(from), Timestamp.valueOf(to), pageSize);
+        }
+        return jdbcTemplate.query("SELECT id, generated_at FROM bill "
+                        + "WHERE generated_at >= ? AND generated_at < ? AND payment_status IS DISTINCT FROM 'COMBINED' "
+                        + "AND (generated_at, id) > (?, ?) "
+                        + "ORDER BY generated_at, id LIMIT ?",
+                (rs, i) -> new BillKey(rs.getObject(1, UUID.class), rs.getTimestamp(2).toLocalDateTime()),
+                Timestamp.valueOf(from), Timestamp.valueOf(to), Timestamp.valueOf(after.generatedAt()), after.id(),
+                pageSize);
+    }
+}
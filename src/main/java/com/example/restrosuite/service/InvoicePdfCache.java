@@ -0,0 +1,273 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.example.restrosuite.entity.Bill;
+import com.example.restrosuite.repository.BillRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rendered invoice PDFs kept on local disk.
+ * A bill never changes once generated, so its PDF is rendered once, right after the BILLED event
+ * is dispatched, and stored content-addressed under {@code objects/<sha256>.pdf} with a small
+ * {@code bills/<billId>} pointer file. Downloads are sent straight from the file (Tomcat sendfile
+ * where available, otherwise FileChannel.transferTo) with the content hash as a strong ETag.
+ * A bill missing from the cache (e.g. billed on another node) is rendered on first download;
+ * concurrent requests for the same bill share one render.
+ */
+@Service
+@Order(60)
+public class InvoicePdfCache implements OutboxConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoicePdfCache.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Path objectsDir;
+    private final Path billsDir;
+    private final Path tmpDir;
+
+    private final Map<UUID, CompletableFuture<CachedPdf>> inFlight = new ConcurrentHashMap<>();
+
+    private final ExecutorService prerenderer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "invoice-pdf-prerender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InvoicePdfCache(@Value("${invoice.pdf.cache-dir:${java.io.tmpdir}/restrosuite/invoices}") String cacheDir)
+            throws IOException {
+        Path root = Paths.get(cacheDir).toAbsolutePath();
+        this.objectsDir = Files.createDirectories(root.resolve("objects"));
+        this.billsDir = Files.createDirectories(root.resolve("bills"));
+        this.tmpDir = Files.createDirectories(root.resolve("tmp"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prerenderer.shutdownNow();
+    }
+
+    /**
+     * A cached PDF: its content hash, file and size.
+     */
+    public record CachedPdf(String sha256, Path file, long size) {
+
+        public String etag() {
+            return "\"" + sha256 + "\"";
+        }
+    }
+
+    /**
+     * Queue a background render for every billed bill in the batch. Rendering happens off the
+     * dispatcher thread; a bill that is already cached is skipped.
+     */
+    @Override
+    public void consume(List<OrderEvent> events) {
+        Set<UUID> billIds = new LinkedHashSet<>();
+        for (OrderEvent event : events) {
+            if (OrderEvent.BILLED.equals(event.getType()) && event.getBillId() != null) {
+                billIds.add(event.getBillId());
+            }
+        }
+        for (UUID billId : billIds) {
+            prerenderer.execute(() -> {
+                try {
+                    get(billId);
+                } catch (RuntimeException e) {
+                    log.warn("Pre-rendering invoice PDF for bill {} failed: {}", billId, e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Cached PDF for a bill, loading and rendering the bill in a read-only transaction on a miss.
+     */
+    public CachedPdf get(UUID billId) {
+        CachedPdf cached = lookup(billId);
+        if (cached != null) {
+            return cached;
+        }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        return tx.execute(status -> get(billRepository.findById(billId)
+                .orElseThrow(() -> new RuntimeException("Bill not found"))));
+    }
+
+    /**
+     * Cached PDF for an already loaded bill, rendering it on a miss. The bill's orders must be
+     * loadable (open session or transaction) if it has to be rendered.
+     */
+    public CachedPdf get(Bill bill) {
+        UUID billId = bill.getId();
+        CachedPdf cached = lookup(billId);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<CachedPdf> mine = new CompletableFuture<>();
+        CompletableFuture<CachedPdf> running = inFlight.putIfAbsent(billId, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+            }
+        }
+        try {
+            CachedPdf pdf = lookup(billId);
+            if (pdf == null) {
+                pdf = store(billId, invoiceService.generateInvoicePdf(bill));
+            }
+            mine.complete(pdf);
+            return pdf;
+        } catch (Exception e) {
+            RuntimeException failure = e instanceof RuntimeException re ? re
+                    : new RuntimeException("Failed to render invoice PDF: " + e.getMessage(), e);
+            mine.completeExceptionally(failure);
+            throw failure;
+        } finally {
+            inFlight.remove(billId, mine);
+        }
+    }
+
+    /**
+     * Write a cached PDF to the response as an attachment, answering 304 when the client's
+     * If-None-Match already matches.
+     */
+    public void send(CachedPdf pdf, String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        if (new ServletWebRequest(request, response).checkNotModified(pdf.etag())) {
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.builder("attachment").filename(filename).build().toString());
+        response.setContentLengthLong(pdf.size());
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat copies the file to the socket itself once the handler returns
+            request.setAttribute(SENDFILE_FILENAME, pdf.file().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, pdf.size());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(pdf.file(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < pdf.size()) {
+                position += channel.transferTo(position, pdf.size() - position, out);
+            }
+        }
+    }
+
+    private CachedPdf lookup(UUID billId) {
+        Path pointer = billsDir.resolve(billId.toString());
+        try {
+            if (!Files.exists(pointer)) {
+                return null;
+            }
+            String sha256 = Files.readString(pointer, StandardCharsets.US_ASCII).trim();
+            Path file = objectFile(sha256);
+            if (file == null || !Files.exists(file)) {
+                return null;
+            }
+            return new CachedPdf(sha256, file, Files.size(file));
+        } catch (IOException e) {
+            log.warn("Unreadable invoice PDF cache entry for bill {}: {}", billId, e.getMessage());
+            return null;
+        }
+    }
+
+    private CachedPdf store(UUID billId, byte[] pdf) {
+        String sha256 = sha256Hex(pdf);
+        Path file = objectFile(sha256);
+        try {
+            if (!Files.exists(file)) {
+                Files.createDirectories(file.getParent());
+                Path tmp = Files.createTempFile(tmpDir, "pdf-", ".tmp");
+                Files.write(tmp, pdf);
+                try {
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Same content written concurrently
+                    Files.deleteIfExists(tmp);
+                }
+            }
+            Path tmpPointer = Files.createTempFile(tmpDir, "bill-", ".tmp");
+            Files.writeString(tmpPointer, sha256, StandardCharsets.US_ASCII);
+            Files.move(tmpPointer, billsDir.resolve(billId.toString()),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new CachedPdf(sha256, file, pdf.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to cache invoice PDF for bill " + billId, e);
+        }
+    }
+
+    private Path objectFile(String sha256) {
+        if (sha256.length() != 64 || !sha256.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            return null;
+        }
+        return objectsDir.resolve(sha256.substring(0, 2)).resolve(sha256 + ".pdf");
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
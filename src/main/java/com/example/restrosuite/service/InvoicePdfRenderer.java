@@ -0,0 +1,297 @@
+package com.example.restrosuite.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders invoice PDFs on a dedicated, bounded worker pool.
+ * Callers hand over a fully resolved {@link InvoiceDocument} (no lazy entities), so rendering
+ * never touches the persistence context and can run off the request thread. At most
+ * {@code render-threads + render-queue} invoices are in the engine at once; further callers wait
+ * up to {@code submit-timeout-ms} for a slot and are then rejected, so a month-end reprint cannot
+ * pile up unbounded work. Fonts, page geometry and the static header/footer text are fixed
+ * constants of the template, font metrics are loaded by a warm-up render at startup, and each
+ * worker reuses its own output buffer.
+ */
+@Service
+public class InvoicePdfRenderer implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoicePdfRenderer.class);
+
+    // Template: fonts (standard 14, shared and never embedded), geometry and static text
+    private static final PDFont TITLE_FONT = PDType1Font.HELVETICA_BOLD;
+    private static final PDFont BODY_FONT = PDType1Font.HELVETICA;
+    private static final PDFont HEADING_FONT = PDType1Font.HELVETICA_BOLD;
+    private static final PDFont FOOTER_FONT = PDType1Font.HELVETICA_OBLIQUE;
+    private static final PDRectangle PAGE_SIZE = PDRectangle.LETTER;
+    private static final float TOP = 750;
+    private static final float BOTTOM = 100;
+    private static final float LEFT_MARGIN = 50;
+    private static final float LINE_HEIGHT = 20;
+    private static final String TITLE = "RESTAURANT INVOICE";
+    private static final String ITEMS_HEADING = "Items:";
+    private static final String FOOTER = "Thank you for your visit!";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ExecutorService workers;
+    private final Semaphore slots;
+    private final long submitTimeoutMs;
+    private final ThreadLocal<ByteArrayOutputStream> buffers =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(16 * 1024));
+    private final Timer renderTimer;
+    private final Counter rejected;
+
+    public InvoicePdfRenderer(MeterRegistry meterRegistry,
+                              @Value("${invoice.pdf.render-threads:2}") int renderThreads,
+                              @Value("${invoice.pdf.render-queue:32}") int renderQueue,
+                              @Value("${invoice.pdf.submit-timeout-ms:5000}") long submitTimeoutMs) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(renderThreads, r -> {
+            Thread thread = new Thread(r, "invoice-pdf-render-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slots = new Semaphore(renderThreads + renderQueue);
+        this.submitTimeoutMs = submitTimeoutMs;
+        int capacity = renderThreads + renderQueue;
+        Gauge.builder("invoice.pdf.render.in_flight", slots, s -> capacity - s.availablePermits())
+                .description("Invoices queued or rendering")
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("invoice.pdf.render")
+                .description("Time to render one invoice PDF")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("invoice.pdf.render.rejected")
+                .description("Invoice renders rejected because the renderer was saturated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Render one empty invoice at startup so PDFBox loads its font metrics and font cache
+     * before the first real bill, instead of on a customer's download.
+     */
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        workers.execute(() -> {
+            try {
+                draw(new InvoiceDocument(new UUID(0, 0), 1, null, null, LocalDateTime.now(), null, null,
+                        List.of(), 0, 0, false, null, null, null, 0, 0));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Invoice renderer warm-up failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Everything printed on an invoice, resolved up front.
+     */
+    public record InvoiceDocument(UUID billId, int orderCount, UUID orderId, String tableNumber,
+                                  LocalDateTime generatedAt, String companyGstin, String customerGstin,
+                                  List<Line> lines, double subtotal, double discount, boolean interState,
+                                  Double cgst, Double sgst, Double igst, double tax, double grandTotal) {
+    }
+
+    public record Line(String name, String hsnCode, int quantity, double unitPrice, double amount) {
+    }
+
+    /**
+     * Render an invoice on the worker pool and wait for the PDF bytes.
+     *
+     * @throws RejectedExecutionException if no render slot frees up within the submit timeout
+     */
+    public byte[] render(InvoiceDocument invoice) throws Exception {
+        if (!slots.tryAcquire(submitTimeoutMs, TimeUnit.MILLISECONDS)) {
+            rejected.increment();
+            throw new RejectedExecutionException("Invoice renderer is busy, try again shortly");
+        }
+        Future<byte[]> result;
+        try {
+            result = workers.submit(() -> {
+                try {
+                    return renderTimer.recordCallable(() -> draw(invoice));
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private byte[] draw(InvoiceDocument invoice) throws IOException {
+        ByteArrayOutputStream out = buffers.get();
+        out.reset();
+        try (PDDocument doc = new PDDocument()) {
+            Cursor cursor = new Cursor(doc);
+            try {
+                cursor.text(TITLE_FONT, 18, TITLE);
+                cursor.gap(30 - LINE_HEIGHT);
+
+                cursor.text(BODY_FONT, 12, "Invoice ID: " + invoice.billId());
+                if (invoice.orderCount() > 1) {
+                    cursor.text(BODY_FONT, 12, "Orders: " + invoice.orderCount() + " orders combined");
+                } else if (invoice.orderId() != null) {
+                    cursor.text(BODY_FONT, 12, "Order ID: " + invoice.orderId());
+                }
+                cursor.text(BODY_FONT, 12, "Table: " + (invoice.tableNumber() != null ? invoice.tableNumber() : "N/A"));
+                cursor.text(BODY_FONT, 12, "Date: " + DATE_FORMAT.format(invoice.generatedAt()));
+                if (invoice.companyGstin() != null) {
+                    cursor.text(BODY_FONT, 12, "Company GSTIN: " + invoice.companyGstin());
+                }
+                if (invoice.customerGstin() != null) {
+                    cursor.text(BODY_FONT, 12, "Customer GSTIN: " + invoice.customerGstin());
+                }
+                cursor.gap(30 - LINE_HEIGHT);
+
+                cursor.text(HEADING_FONT, 12, ITEMS_HEADING);
+                StringBuilder line = new StringBuilder(96);
+                for (Line item : invoice.lines()) {
+                    cursor.breakPageIfNeeded();
+                    line.setLength(0);
+                    line.append(item.name()).append(" (HSN: ").append(item.hsnCode()).append(") - ")
+                            .append(item.quantity()).append(" x Rs");
+                    appendMoney(line, item.unitPrice()).append(" = Rs");
+                    appendMoney(line, item.amount());
+                    cursor.text(BODY_FONT, 10, line.toString());
+                }
+                cursor.gap(20);
+
+                cursor.money(BODY_FONT, 12, "Subtotal: Rs", invoice.subtotal());
+                if (invoice.discount() > 0) {
+                    cursor.money(BODY_FONT, 12, "Discount: -Rs", invoice.discount());
+                }
+                if (invoice.interState()) {
+                    if (invoice.igst() != null && invoice.igst() > 0) {
+                        cursor.money(BODY_FONT, 12, "IGST: Rs", invoice.igst());
+                    }
+                } else {
+                    if (invoice.cgst() != null && invoice.cgst() > 0) {
+                        cursor.money(BODY_FONT, 12, "CGST: Rs", invoice.cgst());
+                    }
+                    if (invoice.sgst() != null && invoice.sgst() > 0) {
+                        cursor.money(BODY_FONT, 12, "SGST: Rs", invoice.sgst());
+                    }
+                }
+                cursor.money(BODY_FONT, 12, "Total Tax: Rs", invoice.tax());
+                cursor.money(HEADING_FONT, 14, "Grand Total: Rs", invoice.grandTotal());
+                cursor.gap(40 - LINE_HEIGHT);
+
+                cursor.text(FOOTER_FONT, 10, FOOTER);
+            } finally {
+                cursor.close();
+            }
+            doc.save(out);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Amount with two decimals, rounded half-up on paise, without going through String.format.
+     */
+    static StringBuilder appendMoney(StringBuilder sb, double rupees) {
+        long paise = BillCalculator.toPaise(rupees);
+        if (paise < 0) {
+            sb.append('-');
+            paise = -paise;
+        }
+        long fraction = paise % 100;
+        sb.append(paise / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * Writes one line of text at a time down the page, starting a new page near the bottom margin.
+     */
+    private static final class Cursor {
+
+        private final PDDocument doc;
+        private final StringBuilder scratch = new StringBuilder(48);
+        private PDPageContentStream stream;
+        private float y = TOP;
+
+        Cursor(PDDocument doc) throws IOException {
+            this.doc = doc;
+            this.stream = newPage();
+        }
+
+        void text(PDFont font, float size, String text) throws IOException {
+            stream.beginText();
+            stream.setFont(font, size);
+            stream.newLineAtOffset(LEFT_MARGIN, y);
+            stream.showText(text);
+            stream.endText();
+            y -= LINE_HEIGHT;
+        }
+
+        void money(PDFont font, float size, String label, double amount) throws IOException {
+            scratch.setLength(0);
+            text(font, size, appendMoney(scratch.append(label), amount).toString());
+        }
+
+        void gap(float height) {
+            y -= height;
+        }
+
+        void breakPageIfNeeded() throws IOException {
+            if (y < BOTTOM) {
+                stream.close();
+                stream = newPage();
+                y = TOP;
+            }
+        }
+
+        void close() throws IOException {
+            stream.close();
+        }
+
+        private PDPageContentStream newPage() throws IOException {
+            PDPage page = new PDPage(PAGE_SIZE);
+            doc.addPage(page);
+            return new PDPageContentStream(doc, page);
+        }
+    }
+}
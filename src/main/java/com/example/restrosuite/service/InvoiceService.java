@@ -3,83 +3,45 @@ package com.example.restrosuite.service;
 import com.example.restrosuite.entity.Bill;
 import com.example.restrosuite.entity.Order;
 import com.example.restrosuite.entity.OrderItem;
-import com.example.restrosuite.repository.BillRepository;
-import com.example.restrosuite.repository.OrderRepository;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import com.example.restrosuite.repository.BillOrderRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 public class InvoiceService {
 
     @Autowired
-    private OrderRepository orderRepository;
-    
+    private BillOrderRepository billOrderRepository;
+
     @Autowired
-    private BillRepository billRepository;
+    private InvoicePdfRenderer invoicePdfRenderer;
+
+    /**
+     * Orders covered by a bill, resolved through the bill_order link table.
+     * Bills generated before links were recorded fall back to their own order.
+     */
+    public List<Order> getOrdersForBill(Bill bill) {
+        List<Order> orders = billOrderRepository.findOrdersByBillId(bill.getId());
+        if (orders.isEmpty() && bill.getOrder() != null) {
+            return List.of(bill.getOrder());
+        }
+        return orders;
+    }
 
     public String generateTextInvoice(Bill bill) {
         Order primaryOrder = bill.getOrder();
         StringBuilder invoice = new StringBuilder();
         
-        // Get all orders for combined bills
-        List<Order> allOrders = new ArrayList<>();
-        List<OrderItem> allItems = new ArrayList<>();
-        
-        if (primaryOrder != null && primaryOrder.getTable() != null) {
-            // Check if this is a combined bill
-            if ("COMBINED_BILL".equals(bill.getPaymentStatus())) {
-                // Get all completed orders for this table that have COMBINED status bills
-                // These are the orders that are part of this combined bill
-                List<Order> tableOrders = orderRepository.findCompletedOrdersByTableId(primaryOrder.getTable().getId());
-                // Filter to get orders that have COMBINED status bills (reference bills)
-                // These are orders created after the last bill and included in this bill
-                allOrders = tableOrders.stream()
-                    .filter(order -> {
-                        Optional<Bill> orderBill = billRepository.findByOrderId(order.getId());
-                        if (orderBill.isPresent() && "COMBINED".equals(orderBill.get().getPaymentStatus())) {
-                            // Check if this order's bill was generated around the same time as the combined bill
-                            // (within 1 minute to account for processing time)
-                            long timeDiff = Math.abs(java.time.Duration.between(
-                                orderBill.get().getGeneratedAt(), 
-                                bill.getGeneratedAt()
-                            ).toMinutes());
-                            return timeDiff <= 1; // Orders billed within 1 minute are part of this combined bill
-                        }
-                        return false;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-                // Also include the primary order
-                if (!allOrders.contains(primaryOrder)) {
-                    allOrders.add(0, primaryOrder);
-                }
-            } else {
-                allOrders.add(primaryOrder);
-            }
-            
-            // Collect all items from all orders
-            for (Order order : allOrders) {
-                if (order.getItems() != null) {
-                    allItems.addAll(order.getItems());
-                }
-            }
-        } else {
-            // Fallback to single order
-            if (primaryOrder != null && primaryOrder.getItems() != null) {
-                allItems.addAll(primaryOrder.getItems());
-            }
-        }
-        
+        // Get all orders covered by this bill (one for single bills, several for combined bills)
+        List<Order> allOrders = getOrdersForBill(bill);
+
         invoice.append("========================================\n");
         invoice.append("          RESTAURANT INVOICE\n");
         invoice.append("========================================\n\n");
@@ -117,27 +79,8 @@ public class InvoiceService {
         invoice.append(String.format("%-20s %6s %5s %10s %10s\n", "Item", "HSN", "Qty", "Rate", "Amount"));
         invoice.append("----------------------------------------\n");
         
-        // Group items by menu item and sum quantities
-        java.util.Map<UUID, OrderItem> itemMap = new java.util.HashMap<>();
-        for (OrderItem item : allItems) {
-            UUID menuItemId = item.getMenuItem().getId();
-            if (itemMap.containsKey(menuItemId)) {
-                OrderItem existing = itemMap.get(menuItemId);
-                existing.setQuantity(existing.getQuantity() + item.getQuantity());
-                existing.setPrice(existing.getPrice() + item.getPrice());
-            } else {
-                // Create a copy to avoid modifying the original
-                OrderItem copy = OrderItem.builder()
-                    .menuItem(item.getMenuItem())
-                    .quantity(item.getQuantity())
-                    .price(item.getPrice())
-                    .build();
-                itemMap.put(menuItemId, copy);
-            }
-        }
-        
         // Display all items
-        for (OrderItem item : itemMap.values()) {
+        for (OrderItem item : groupItems(allOrders)) {
             String hsnCode = item.getMenuItem().getHsnCode() != null ? item.getMenuItem().getHsnCode() : "N/A";
             double unitPrice = item.getMenuItem().getPrice();
             invoice.append(String.format("%-20s %6s %5d %10.2f %10.2f\n",
@@ -179,224 +122,67 @@ public class InvoiceService {
         return invoice.toString();
     }
 
+    /**
+     * Render the bill as a PDF on the {@link InvoicePdfRenderer} pool. Everything the invoice
+     * shows is resolved here, on the caller's thread, so the renderer never loads entities.
+     */
     public byte[] generateInvoicePdf(Bill bill) throws Exception {
         Order primaryOrder = bill.getOrder();
-        
-        // Get all orders for combined bills
-        List<Order> allOrders = new ArrayList<>();
-        List<OrderItem> allItems = new ArrayList<>();
-        
-        if (primaryOrder != null && primaryOrder.getTable() != null) {
-            if ("COMBINED_BILL".equals(bill.getPaymentStatus())) {
-                List<Order> tableOrders = orderRepository.findCompletedOrdersByTableId(primaryOrder.getTable().getId());
-                allOrders = tableOrders.stream()
-                    .filter(order -> {
-                        Optional<Bill> orderBill = billRepository.findByOrderId(order.getId());
-                        if (orderBill.isPresent() && "COMBINED".equals(orderBill.get().getPaymentStatus())) {
-                            // Check if this order's bill was generated around the same time as the combined bill
-                            long timeDiff = Math.abs(java.time.Duration.between(
-                                orderBill.get().getGeneratedAt(), 
-                                bill.getGeneratedAt()
-                            ).toMinutes());
-                            return timeDiff <= 1; // Orders billed within 1 minute are part of this combined bill
-                        }
-                        return false;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-                if (!allOrders.contains(primaryOrder)) {
-                    allOrders.add(0, primaryOrder);
-                }
-            } else {
-                allOrders.add(primaryOrder);
-            }
-            
-            for (Order order : allOrders) {
-                if (order.getItems() != null) {
-                    allItems.addAll(order.getItems());
-                }
-            }
-        } else {
-            if (primaryOrder != null && primaryOrder.getItems() != null) {
-                allItems.addAll(primaryOrder.getItems());
-            }
-        }
-        
-        // Group items by menu item
-        java.util.Map<UUID, OrderItem> itemMap = new java.util.HashMap<>();
-        for (OrderItem item : allItems) {
-            UUID menuItemId = item.getMenuItem().getId();
-            if (itemMap.containsKey(menuItemId)) {
-                OrderItem existing = itemMap.get(menuItemId);
-                existing.setQuantity(existing.getQuantity() + item.getQuantity());
-                existing.setPrice(existing.getPrice() + item.getPrice());
-            } else {
-                OrderItem copy = OrderItem.builder()
-                    .menuItem(item.getMenuItem())
-                    .quantity(item.getQuantity())
-                    .price(item.getPrice())
-                    .build();
-                itemMap.put(menuItemId, copy);
-            }
+        List<Order> allOrders = getOrdersForBill(bill);
+
+        List<InvoicePdfRenderer.Line> lines = new ArrayList<>();
+        for (OrderItem item : groupItems(allOrders)) {
+            String itemName = item.getMenuItem() != null ? item.getMenuItem().getName() : "Unknown Item";
+            String hsnCode = (item.getMenuItem() != null && item.getMenuItem().getHsnCode() != null)
+                ? item.getMenuItem().getHsnCode() : "N/A";
+            double itemPrice = item.getMenuItem() != null ? item.getMenuItem().getPrice() : item.getPrice();
+            lines.add(new InvoicePdfRenderer.Line(itemName, hsnCode, item.getQuantity(), itemPrice, item.getPrice()));
         }
-        
-        try (PDDocument doc = new PDDocument();
-             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
 
-            PDPage page = new PDPage();
-            doc.addPage(page);
-            PDPageContentStream cs = new PDPageContentStream(doc, page);
-            
-            try {
-                float yPosition = 750;
-                float leftMargin = 50;
-                float lineHeight = 20;
-                
-                // Title
-                cs.beginText();
-                cs.setFont(PDType1Font.HELVETICA_BOLD, 18);
-                cs.newLineAtOffset(leftMargin, yPosition);
-                cs.showText("RESTAURANT INVOICE");
-                cs.endText();
-                
-                yPosition -= 30;
-                
-                // Invoice Details
-                cs.beginText();
-                cs.setFont(PDType1Font.HELVETICA, 12);
-                cs.newLineAtOffset(leftMargin, yPosition);
-                cs.showText("Invoice ID: " + bill.getId());
-                yPosition -= lineHeight;
-                cs.newLineAtOffset(0, -lineHeight);
-                if (allOrders.size() > 1) {
-                    cs.showText("Orders: " + allOrders.size() + " orders combined");
-                    yPosition -= lineHeight;
-                    cs.newLineAtOffset(0, -lineHeight);
-                } else if (primaryOrder != null) {
-                    cs.showText("Order ID: " + primaryOrder.getId());
-                    yPosition -= lineHeight;
-                    cs.newLineAtOffset(0, -lineHeight);
-                }
-                cs.showText("Table: " + (primaryOrder != null && primaryOrder.getTable() != null ? primaryOrder.getTable().getTableNumber() : "N/A"));
-                yPosition -= lineHeight;
-                cs.newLineAtOffset(0, -lineHeight);
-                cs.showText("Date: " + bill.getGeneratedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                if (bill.getCompanyGstin() != null) {
-                    yPosition -= lineHeight;
-                    cs.newLineAtOffset(0, -lineHeight);
-                    cs.showText("Company GSTIN: " + bill.getCompanyGstin());
-                }
-                if (bill.getCustomerGstin() != null) {
-                    yPosition -= lineHeight;
-                    cs.newLineAtOffset(0, -lineHeight);
-                    cs.showText("Customer GSTIN: " + bill.getCustomerGstin());
-                }
-                cs.endText();
-                
-                yPosition -= 30;
-                
-                // Items Header
-                cs.beginText();
-                cs.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                cs.newLineAtOffset(leftMargin, yPosition);
-                cs.showText("Items:");
-                cs.endText();
-                
-                yPosition -= lineHeight;
-                
-                // Items List
-                cs.beginText();
-                cs.setFont(PDType1Font.HELVETICA, 10);
-                cs.newLineAtOffset(leftMargin, yPosition);
-                
-                if (!itemMap.isEmpty()) {
-                    for (OrderItem item : itemMap.values()) {
-                        if (yPosition < 100) {
-                            // Need new page
-                            cs.endText();
-                            cs.close();
-                            PDPage newPage = new PDPage();
-                            doc.addPage(newPage);
-                            cs = new PDPageContentStream(doc, newPage);
-                            yPosition = 750;
-                            cs.beginText();
-                            cs.setFont(PDType1Font.HELVETICA, 10);
-                            cs.newLineAtOffset(leftMargin, yPosition);
-                        }
-                        
-                        String itemName = item.getMenuItem() != null ? item.getMenuItem().getName() : "Unknown Item";
-                        String hsnCode = (item.getMenuItem() != null && item.getMenuItem().getHsnCode() != null) 
-                            ? item.getMenuItem().getHsnCode() : "N/A";
-                        double itemPrice = item.getMenuItem() != null ? item.getMenuItem().getPrice() : item.getPrice();
-                        String itemLine = String.format("%s (HSN: %s) - %d x Rs%.2f = Rs%.2f",
-                            itemName,
-                            hsnCode,
-                            item.getQuantity(),
-                            itemPrice,
-                            item.getPrice());
-                        cs.showText(itemLine);
-                        yPosition -= lineHeight;
-                        cs.newLineAtOffset(0, -lineHeight);
-                    }
-                }
-                cs.endText();
-                
-                yPosition -= 20;
-                
-                // Totals
-                cs.beginText();
-                cs.setFont(PDType1Font.HELVETICA, 12);
-                cs.newLineAtOffset(leftMargin, yPosition);
-                cs.showText("Subtotal: Rs" + String.format("%.2f", bill.getTotalAmount()));
-                yPosition -= lineHeight;
-                cs.newLineAtOffset(0, -lineHeight);
-                if (bill.getDiscountAmount() > 0) {
-                    cs.showText("Discount: -Rs" + String.format("%.2f", bill.getDiscountAmount()));
-                    yPosition -= lineHeight;
-                    cs.newLineAtOffset(0, -lineHeight);
-                }
-                
-                // GST Breakdown
-                if (bill.getIsInterState() != null && bill.getIsInterState()) {
-                    if (bill.getIgst() != null && bill.getIgst() > 0) {
-                        cs.showText("IGST: Rs" + String.format("%.2f", bill.getIgst()));
-                        yPosition -= lineHeight;
-                        cs.newLineAtOffset(0, -lineHeight);
-                    }
+        return invoicePdfRenderer.render(new InvoicePdfRenderer.InvoiceDocument(
+                bill.getId(),
+                allOrders.size(),
+                primaryOrder != null ? primaryOrder.getId() : null,
+                primaryOrder != null && primaryOrder.getTable() != null ? primaryOrder.getTable().getTableNumber() : null,
+                bill.getGeneratedAt(),
+                bill.getCompanyGstin(),
+                bill.getCustomerGstin(),
+                lines,
+                bill.getTotalAmount(),
+                bill.getDiscountAmount(),
+                Boolean.TRUE.equals(bill.getIsInterState()),
+                bill.getCgst(),
+                bill.getSgst(),
+                bill.getIgst(),
+                bill.getTax(),
+                bill.getGrandTotal()));
+    }
+
+    /**
+     * Items of all orders merged per menu item (quantities and prices summed), in first-seen order.
+     * Works on copies so the orders themselves are never modified.
+     */
+    private List<OrderItem> groupItems(List<Order> orders) {
+        Map<UUID, OrderItem> itemMap = new LinkedHashMap<>();
+        for (Order order : orders) {
+            if (order.getItems() == null) {
+                continue;
+            }
+            for (OrderItem item : order.getItems()) {
+                UUID menuItemId = item.getMenuItem().getId();
+                OrderItem existing = itemMap.get(menuItemId);
+                if (existing != null) {
+                    existing.setQuantity(existing.getQuantity() + item.getQuantity());
+                    existing.setPrice(existing.getPrice() + item.getPrice());
                 } else {
-                    if (bill.getCgst() != null && bill.getCgst() > 0) {
-                        cs.showText("CGST: Rs" + String.format("%.2f", bill.getCgst()));
-                        yPosition -= lineHeight;
-                        cs.newLineAtOffset(0, -lineHeight);
-                    }
-                    if (bill.getSgst() != null && bill.getSgst() > 0) {
-                        cs.showText("SGST: Rs" + String.format("%.2f", bill.getSgst()));
-                        yPosition -= lineHeight;
-                        cs.newLineAtOffset(0, -lineHeight);
-                    }
-                }
-                cs.showText("Total Tax: Rs" + String.format("%.2f", bill.getTax()));
-                yPosition -= lineHeight;
-                cs.newLineAtOffset(0, -lineHeight);
-                cs.setFont(PDType1Font.HELVETICA_BOLD, 14);
-                cs.showText("Grand Total: Rs" + String.format("%.2f", bill.getGrandTotal()));
-                cs.endText();
-                
-                // Footer
-                yPosition -= 40;
-                cs.beginText();
-                cs.setFont(PDType1Font.HELVETICA_OBLIQUE, 10);
-                cs.newLineAtOffset(leftMargin, yPosition);
-                cs.showText("Thank you for your visit!");
-                cs.endText();
-            } finally {
-                if (cs != null) {
-                    cs.close();
+                    itemMap.put(menuItemId, OrderItem.builder()
+                        .menuItem(item.getMenuItem())
+                        .quantity(item.getQuantity())
+                        .price(item.getPrice())
+                        .build());
                 }
             }
-
-            doc.save(out);
-            return out.toByteArray();
         }
+        return new ArrayList<>(itemMap.values());
     }
 }
-
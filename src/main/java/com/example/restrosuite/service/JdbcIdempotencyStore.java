@@ -0,0 +1,50 @@
+package com.example.restrosuite.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Idempotency store backed by the idempotency_key table, shared by all nodes.
+ * Entries are written in the caller's transaction, so a key is recorded exactly when the
+ * work it guards commits.
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Override
+    public Optional<String> find(String key) {
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT response FROM idempotency_key WHERE idempotency_key = ? AND expires_at > ?",
+                String.class, key, LocalDateTime.now());
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    public void save(String key, String responseJson) {
+        LocalDateTime now = LocalDateTime.now();
+        // An expired row for the same key may still be waiting for the purge
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE idempotency_key = ? AND expires_at <= ?", key, now);
+        jdbcTemplate.update(
+                "INSERT INTO idempotency_key (idempotency_key, response, created_at, expires_at) VALUES (?, ?, ?, ?)",
+                key, responseJson, now, now.plusSeconds(ttlSeconds));
+    }
+
+    @Override
+    public int purgeExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_key WHERE expires_at <= ?", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.example.restrosuite.entity.SalesRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-outlet, per-minute order counts and gross sales for yesterday, today and the last hour,
+ * held in memory so dashboards can poll them without touching the database.
+ * Each outlet has a ring of minute slots covering two days plus an hour; a slot remembers which
+ * minute it holds and is reset when the ring wraps onto it. Slots are written under this
+ * object's monitor, by the outbox dispatcher, by events relayed from the dispatching node over
+ * the cluster bus, and by the startup seed, and are read without locks.
+ * Orders are counted in the minute they were created; later events for the same order only apply
+ * the change in its total, so replayed events never double count. Counters are seeded from the
+ * orders table at startup while holding the outbox dispatch lock; events delivered after the seed
+ * for orders it already counted go through the same per-order diff. Outbox ids are not used as
+ * a watermark because they can commit out of order.
+ */
+@Service
+@Order(30)
+public class LiveSalesCounters implements OutboxConsumer, ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveSalesCounters.class);
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int SLOTS = 2 * MINUTES_PER_DAY + 60;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<UUID, Ring> outlets = new ConcurrentHashMap<>();
+    private final Ring allOutlets = new Ring();
+
+    // Writer-side state, guarded by this
+    private final Map<UUID, TrackedOrder> orders = new HashMap<>();
+    private long prunedAtMinute;
+
+    private volatile boolean ready;
+
+    /**
+     * Orders and gross sales (in paise) over a range of minutes.
+     */
+    public record Counts(long orders, long grossPaise) {
+
+        public double gross() {
+            return BillCalculator.toRupees(grossPaise);
+        }
+    }
+
+    private record TrackedOrder(UUID outletId, long minute, long totalPaise) {
+    }
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        seed();
+    }
+
+    /**
+     * Whether the counters have been seeded and can answer queries.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Counts for orders created in [from, to), resolved to whole minutes.
+     *
+     * @param outletId only this outlet's orders, or null for all outlets
+     * @throws IllegalArgumentException if the range is not held in memory
+     */
+    public Counts between(LocalDateTime from, LocalDateTime to, UUID outletId) {
+        long first = minuteOf(from);
+        long end = minuteOf(to);
+        if (end - first > SLOTS || first <= minuteOf(LocalDateTime.now()) - SLOTS) {
+            throw new IllegalArgumentException("Range is outside the live sales window");
+        }
+        Ring ring = outletId == null ? allOutlets : outlets.get(outletId);
+        if (ring == null) {
+            return new Counts(0, 0);
+        }
+        long orderCount = 0;
+        long grossPaise = 0;
+        for (long minute = first; minute < end; minute++) {
+            int slot = slotOf(minute);
+            if (ring.minutes.get(slot) != minute) {
+                continue;
+            }
+            long slotOrders = ring.orders.get(slot);
+            long slotGross = ring.grossPaise.get(slot);
+            // Skip a slot the writer recycled while it was being read
+            if (ring.minutes.get(slot) == minute) {
+                orderCount += slotOrders;
+                grossPaise += slotGross;
+            }
+        }
+        return new Counts(orderCount, grossPaise);
+    }
+
+    /**
+     * Orders created today up to now.
+     */
+    public Counts today(UUID outletId) {
+        LocalDateTime now = LocalDateTime.now();
+        return between(now.toLocalDate().atStartOfDay(), now.plusMinutes(1), outletId);
+    }
+
+    /**
+     * Orders created in the last 60 minutes, including the current one.
+     */
+    public Counts lastHour(UUID outletId) {
+        LocalDateTime now = LocalDateTime.now();
+        return between(now.minusMinutes(59), now.plusMinutes(1), outletId);
+    }
+
+    @Override
+    public synchronized void consume(List<OrderEvent> events) {
+        if (!ready) {
+            return;
+        }
+        for (OrderEvent event : events) {
+            if (event.getOrderId() == null || event.getTotalAmount() == null) {
+                continue;
+            }
+            TrackedOrder tracked = orders.get(event.getOrderId());
+            if (tracked == null) {
+                // Orders created before the window (or before the seed) are not counted
+                if (!OrderEvent.CREATED.equals(event.getType()) || event.getOccurredAt() == null) {
+                    continue;
+                }
+                UUID outletId = event.getOutletId() != null ? event.getOutletId() : SalesRollup.NO_OUTLET;
+                tracked = new TrackedOrder(outletId, minuteOf(event.getOccurredAt()), 0);
+                add(tracked.outletId(), tracked.minute(), 1, 0);
+            }
+            long totalPaise = BillCalculator.toPaise(event.getTotalAmount());
+            if (totalPaise != tracked.totalPaise()) {
+                add(tracked.outletId(), tracked.minute(), 0, totalPaise - tracked.totalPaise());
+            }
+            orders.put(event.getOrderId(), new TrackedOrder(tracked.outletId(), tracked.minute(), totalPaise));
+        }
+        pruneOrders();
+    }
+
+    /**
+     * Reload the counters from the orders created since yesterday. Holds the outbox dispatch
+     * lock so no batch is applied while the orders are read.
+     */
+    public synchronized void seed() {
+        ready = false;
+        outlets.clear();
+        allOutlets.clear();
+        orders.clear();
+        LocalDateTime since = LocalDate.now().minusDays(1).atStartOfDay();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> {
+            }, OutboxDispatcher.DISPATCH_LOCK_KEY);
+            jdbcTemplate.query("SELECT id, outlet_id, created_at, total_amount FROM orders WHERE created_at >= ?", rs -> {
+                UUID outletId = rs.getObject("outlet_id", UUID.class);
+                TrackedOrder order = new TrackedOrder(outletId != null ? outletId : SalesRollup.NO_OUTLET,
+                        minuteOf(rs.getTimestamp("created_at").toLocalDateTime()),
+                        BillCalculator.toPaise(rs.getDouble("total_amount")));
+                orders.put(rs.getObject("id", UUID.class), order);
+                add(order.outletId(), order.minute(), 1, order.totalPaise());
+            }, Timestamp.valueOf(since));
+        });
+        prunedAtMinute = minuteOf(LocalDateTime.now());
+        ready = true;
+        log.info("Live sales counters seeded from {} order(s)", orders.size());
+    }
+
+    private void add(UUID outletId, long minute, long orderCount, long grossPaise) {
+        outlets.computeIfAbsent(outletId, id -> new Ring()).add(minute, orderCount, grossPaise);
+        allOutlets.add(minute, orderCount, grossPaise);
+    }
+
+    // Forget orders whose minute has left the window, at most once an hour
+    private void pruneOrders() {
+        long now = minuteOf(LocalDateTime.now());
+        if (now - prunedAtMinute < 60) {
+            return;
+        }
+        orders.values().removeIf(order -> order.minute() <= now - SLOTS);
+        prunedAtMinute = now;
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static int slotOf(long minute) {
+        return (int) Math.floorMod(minute, (long) SLOTS);
+    }
+
+    /**
+     * One ring of minute slots. Written by a single thread at a time, read by any.
+     */
+    private static final class Ring {
+
+        private final AtomicLongArray minutes = new AtomicLongArray(SLOTS);
+        private final AtomicLongArray orders = new AtomicLongArray(SLOTS);
+        private final AtomicLongArray grossPaise = new AtomicLongArray(SLOTS);
+
+        Ring() {
+            clear();
+        }
+
+        void add(long minute, long orderCount, long gross) {
+            int slot = slotOf(minute);
+            long held = minutes.get(slot);
+            if (held > minute) {
+                // Older than the window
+                return;
+            }
+            if (held != minute) {
+                minutes.set(slot, -1);
+                orders.set(slot, 0);
+                grossPaise.set(slot, 0);
+                minutes.set(slot, minute);
+            }
+            orders.addAndGet(slot, orderCount);
+            grossPaise.addAndGet(slot, gross);
+        }
+
+        void clear() {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                minutes.set(slot, -1);
+                orders.set(slot, 0);
+                grossPaise.set(slot, 0);
+            }
+        }
+    }
+}
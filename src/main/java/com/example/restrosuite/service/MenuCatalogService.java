@@ -0,0 +1,214 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.MenuModifier;
+import com.example.restrosuite.entity.ModifierGroup;
+import com.example.restrosuite.repository.MenuItemRepository;
+import com.example.restrosuite.repository.MenuModifierRepository;
+import com.example.restrosuite.repository.ModifierGroupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory, versioned snapshot of the menu catalog (menu items, modifiers and modifier groups).
+ * Order intake prices and validates line items against the current snapshot instead of
+ * hitting the database once per item and modifier. Menu and modifier writes swap in a
+ * freshly loaded snapshot after their transaction commits.
+ */
+@Service
+public class MenuCatalogService implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(MenuCatalogService.class);
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private MenuModifierRepository menuModifierRepository;
+
+    @Autowired
+    private ModifierGroupRepository modifierGroupRepository;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        refresh();
+    }
+
+    /**
+     * Current catalog snapshot, loading it on first use.
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot.get();
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Look up a menu item. Falls back to the database only when the id is not in the
+     * snapshot (e.g. rows written outside MenuService) and reloads the snapshot if found.
+     */
+    public Optional<MenuItem> findMenuItem(UUID id) {
+        MenuItem item = current().getMenuItems().get(id);
+        if (item != null) {
+            return Optional.of(item);
+        }
+        if (menuItemRepository.existsById(id)) {
+            return Optional.ofNullable(refresh().getMenuItems().get(id));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Look up a menu modifier, with the same miss handling as {@link #findMenuItem(UUID)}.
+     */
+    public Optional<MenuModifier> findModifier(UUID id) {
+        MenuModifier modifier = current().getModifiers().get(id);
+        if (modifier != null) {
+            return Optional.of(modifier);
+        }
+        if (menuModifierRepository.existsById(id)) {
+            return Optional.ofNullable(refresh().getModifiers().get(id));
+        }
+        return Optional.empty();
+    }
+
+    public Optional<ModifierGroup> findModifierGroup(UUID id) {
+        return Optional.ofNullable(current().getModifierGroups().get(id));
+    }
+
+    /**
+     * Reload the catalog from the database and atomically publish it.
+     */
+    public synchronized Snapshot refresh() {
+        Map<UUID, ModifierGroup> groups = new HashMap<>();
+        for (ModifierGroup group : modifierGroupRepository.findAll()) {
+            groups.put(group.getId(), copyOf(group));
+        }
+
+        Map<UUID, MenuModifier> modifiers = new HashMap<>();
+        for (MenuModifier modifier : menuModifierRepository.findAll()) {
+            UUID groupId = modifier.getModifierGroup() != null ? modifier.getModifierGroup().getId() : null;
+            modifiers.put(modifier.getId(), copyOf(modifier, groups.get(groupId)));
+        }
+
+        Map<UUID, MenuItem> items = new HashMap<>();
+        for (MenuItem item : menuItemRepository.findAll()) {
+            items.put(item.getId(), copyOf(item));
+        }
+
+        Snapshot next = new Snapshot(versionCounter.incrementAndGet(), items, modifiers, groups);
+        snapshot.set(next);
+        log.debug("Menu catalog snapshot v{} loaded: {} items, {} modifiers, {} groups",
+                next.getVersion(), items.size(), modifiers.size(), groups.size());
+        return next;
+    }
+
+    /**
+     * Refresh once the surrounding transaction commits, so readers never see uncommitted
+     * menu data. Refreshes immediately when called outside a transaction.
+     */
+    public void refreshAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh();
+                }
+            });
+        } else {
+            refresh();
+        }
+    }
+
+    // Detached copies so the snapshot never shares state with a persistence context
+
+    private static MenuItem copyOf(MenuItem item) {
+        return MenuItem.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .category(item.getCategory())
+                .price(item.getPrice())
+                .available(item.isAvailable())
+                .description(item.getDescription())
+                .hsnCode(item.getHsnCode())
+                .taxRate(item.getTaxRate())
+                .build();
+    }
+
+    private static ModifierGroup copyOf(ModifierGroup group) {
+        return ModifierGroup.builder()
+                .id(group.getId())
+                .name(group.getName())
+                .description(group.getDescription())
+                .isRequired(group.getIsRequired())
+                .allowMultiple(group.getAllowMultiple())
+                .minSelection(group.getMinSelection())
+                .maxSelection(group.getMaxSelection())
+                .isActive(group.getIsActive())
+                .build();
+    }
+
+    private static MenuModifier copyOf(MenuModifier modifier, ModifierGroup group) {
+        return MenuModifier.builder()
+                .id(modifier.getId())
+                .modifierGroup(group)
+                .name(modifier.getName())
+                .description(modifier.getDescription())
+                .price(modifier.getPrice())
+                .isActive(modifier.getIsActive())
+                .displayOrder(modifier.getDisplayOrder())
+                .build();
+    }
+
+    /**
+     * Immutable view of the catalog at a given version. Entities held here are detached
+     * copies and must be treated as read-only.
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final Map<UUID, MenuItem> menuItems;
+        private final Map<UUID, MenuModifier> modifiers;
+        private final Map<UUID, ModifierGroup> modifierGroups;
+
+        Snapshot(long version, Map<UUID, MenuItem> menuItems, Map<UUID, MenuModifier> modifiers,
+                 Map<UUID, ModifierGroup> modifierGroups) {
+            this.version = version;
+            this.menuItems = Map.copyOf(menuItems);
+            this.modifiers = Map.copyOf(modifiers);
+            this.modifierGroups = Map.copyOf(modifierGroups);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Map<UUID, MenuItem> getMenuItems() {
+            return menuItems;
+        }
+
+        public Map<UUID, MenuModifier> getModifiers() {
+            return modifiers;
+        }
+
+        public Map<UUID, ModifierGroup> getModifierGroups() {
+            return modifierGroups;
+        }
+    }
+}
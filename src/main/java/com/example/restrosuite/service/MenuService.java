@@ -16,13 +16,18 @@ public class MenuService {
     @Autowired
     private MenuItemRepository menuItemRepository;
 
+    @Autowired
+    private MenuCatalogService menuCatalogService;
+
     public List<MenuItem> getAllMenuItems() {
         return menuItemRepository.findAll();
     }
 
     public MenuItem createMenuItem(MenuItem menuItem) {
         menuItem.setAvailable(true);
-        return menuItemRepository.save(menuItem);
+        MenuItem saved = menuItemRepository.save(menuItem);
+        menuCatalogService.refreshAfterCommit();
+        return saved;
     }
 
     public MenuItem updateMenuItem(UUID id, MenuItem menuItemDetails) {
@@ -37,14 +42,18 @@ public class MenuService {
         existing.setHsnCode(menuItemDetails.getHsnCode());
         existing.setTaxRate(menuItemDetails.getTaxRate());
         
-        return menuItemRepository.save(existing);
+        MenuItem saved = menuItemRepository.save(existing);
+        menuCatalogService.refreshAfterCommit();
+        return saved;
     }
 
     public MenuItem toggleAvailability(UUID id) {
         MenuItem existing = menuItemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Menu item not found"));
         existing.setAvailable(!existing.isAvailable());
-        return menuItemRepository.save(existing);
+        MenuItem saved = menuItemRepository.save(existing);
+        menuCatalogService.refreshAfterCommit();
+        return saved;
     }
 
     public void deleteMenuItem(UUID id) {
@@ -52,10 +61,12 @@ public class MenuService {
             throw new RuntimeException("Menu item not found");
         }
         menuItemRepository.deleteById(id);
+        menuCatalogService.refreshAfterCommit();
     }
 
     public void deleteMenuItemsBulk(List<UUID> ids) {
         menuItemRepository.deleteAllById(ids);
+        menuCatalogService.refreshAfterCommit();
     }
 }
 
@@ -26,6 +26,9 @@ public class ModifierService {
     @Autowired
     private MenuItemModifierGroupRepository menuItemModifierGroupRepository;
 
+    @Autowired
+    private MenuCatalogService menuCatalogService;
+
     // ModifierGroup operations
     public List<ModifierGroup> getAllModifierGroups() {
         return modifierGroupRepository.findAll();
@@ -86,7 +89,9 @@ public class ModifierService {
     }
 
     public ModifierGroup createModifierGroup(ModifierGroup modifierGroup) {
-        return modifierGroupRepository.save(modifierGroup);
+        ModifierGroup saved = modifierGroupRepository.save(modifierGroup);
+        menuCatalogService.refreshAfterCommit();
+        return saved;
     }
 
     public ModifierGroup updateModifierGroup(UUID id, ModifierGroup modifierGroupDetails) {
@@ -101,11 +106,14 @@ public class ModifierService {
         existing.setMaxSelection(modifierGroupDetails.getMaxSelection());
         existing.setIsActive(modifierGroupDetails.getIsActive());
         
-        return modifierGroupRepository.save(existing);
+        ModifierGroup saved = modifierGroupRepository.save(existing);
+        menuCatalogService.refreshAfterCommit();
+        return saved;
     }
 
     public void deleteModifierGroup(UUID id) {
         modifierGroupRepository.deleteById(id);
+        menuCatalogService.refreshAfterCommit();
     }
 
     // MenuModifier operations
@@ -130,7 +138,9 @@ public class ModifierService {
     }
 
     public MenuModifier createMenuModifier(MenuModifier menuModifier) {
-        return menuModifierRepository.save(menuModifier);
+        MenuModifier saved = menuModifierRepository.save(menuModifier);
+        menuCatalogService.refreshAfterCommit();
+        return saved;
     }
 
     public MenuModifier updateMenuModifier(UUID id, MenuModifier menuModifierDetails) {
@@ -143,11 +153,14 @@ public class ModifierService {
         existing.setIsActive(menuModifierDetails.getIsActive());
         existing.setDisplayOrder(menuModifierDetails.getDisplayOrder());
         
-        return menuModifierRepository.save(existing);
+        MenuModifier saved = menuModifierRepository.save(existing);
+        menuCatalogService.refreshAfterCommit();
+        return saved;
     }
 
     public void deleteMenuModifier(UUID id) {
         menuModifierRepository.deleteById(id);
+        menuCatalogService.refreshAfterCommit();
     }
 
     // MenuItemModifierGroup operations
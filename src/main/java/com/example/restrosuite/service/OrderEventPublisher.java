@@ -0,0 +1,214 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.config.WebSocketOutboundQueues;
+import com.example.restrosuite.dto.OrderEvent;
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.OrderItemModifier;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Builds compact {@link OrderEvent}s and routes them to the topics that care about them:
+ * the all-outlet /topic/orders feed, the order's outlet, each preparation station with lines
+ * on the order, and the order's table (customer phones).
+ * Events are built while the order is still attached (lines and modifiers are read from it).
+ * {@link #publish(OrderEvent)} only writes them to the outbox in the caller's transaction;
+ * they reach WebSocket clients when the outbox dispatcher hands them back after commit.
+ */
+@Service
+@org.springframework.core.annotation.Order(50)
+public class OrderEventPublisher implements OutboxConsumer {
+
+    public static final String ORDERS_TOPIC = "/topic/orders";
+
+    private static final String DEFAULT_STATION = "general";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<ClusterEventBus> clusterEventBus;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    public OrderEvent created(Order order) {
+        return event(OrderEvent.CREATED, order).lines(linesOf(order.getItems())).build();
+    }
+
+    public OrderEvent itemsAdded(Order order, Collection<OrderItem> lines) {
+        return event(OrderEvent.ITEMS_ADDED, order).lines(linesOf(lines)).build();
+    }
+
+    public OrderEvent statusChanged(Order order, String previousStatus) {
+        return event(OrderEvent.STATUS_CHANGED, order).previousStatus(previousStatus).build();
+    }
+
+    public OrderEvent billed(Order order, UUID billId) {
+        return event(OrderEvent.BILLED, order).billId(billId).build();
+    }
+
+    /**
+     * Record the event in the outbox as part of the current transaction.
+     * Its sequence number is assigned by the outbox.
+     */
+    public void publish(OrderEvent event) {
+        outboxService.append(event);
+    }
+
+    /**
+     * Deliver committed events to this node's subscribers and, when the cluster bus is
+     * enabled, relay them to the other nodes.
+     */
+    @Override
+    public void consume(List<OrderEvent> events) {
+        for (OrderEvent event : events) {
+            deliver(event);
+            clusterEventBus.ifAvailable(bus -> bus.relay(event));
+        }
+    }
+
+    /**
+     * Serialize the event once and send the same bytes to every local topic it belongs on.
+     * Station topics get their own payload since they only carry that station's lines.
+     * Status changes are marked conflatable, so a slow client only receives the latest one.
+     */
+    public void deliver(OrderEvent event) {
+        String conflationKey = OrderEvent.STATUS_CHANGED.equals(event.getType())
+                ? "status-" + event.getOrderId() : null;
+        byte[] payload = serialize(event);
+
+        send(ORDERS_TOPIC, payload, conflationKey);
+        if (event.getTableId() != null) {
+            send(tableTopic(event.getTableId()), payload, conflationKey);
+        }
+        if (event.getOutletId() == null) {
+            return;
+        }
+        send(outletTopic(event.getOutletId()), payload, conflationKey);
+
+        if (event.getLines() != null) {
+            // Each station only gets its own lines
+            Map<String, List<OrderEvent.Line>> linesByStation = new LinkedHashMap<>();
+            for (OrderEvent.Line line : event.getLines()) {
+                linesByStation.computeIfAbsent(line.getStation(), k -> new ArrayList<>()).add(line);
+            }
+            linesByStation.forEach((station, lines) -> send(stationTopic(event.getOutletId(), station),
+                    serialize(event.toBuilder().lines(lines).build()), conflationKey));
+        } else if (event.getStations() != null) {
+            for (String station : event.getStations()) {
+                send(stationTopic(event.getOutletId(), station), payload, conflationKey);
+            }
+        }
+    }
+
+    private byte[] serialize(OrderEvent event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize order event: " + e.getMessage(), e);
+        }
+    }
+
+    private void send(String destination, byte[] payload, String conflationKey) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (conflationKey != null) {
+            headers.setNativeHeader(WebSocketOutboundQueues.CONFLATION_KEY_HEADER, conflationKey);
+        }
+        headers.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload, headers.getMessageHeaders()));
+    }
+
+    public static String outletTopic(UUID outletId) {
+        return "/topic/outlets/" + outletId + "/orders";
+    }
+
+    public static String stationTopic(UUID outletId, String station) {
+        return "/topic/outlets/" + outletId + "/stations/" + station;
+    }
+
+    public static String tableTopic(UUID tableId) {
+        return "/topic/tables/" + tableId;
+    }
+
+    /**
+     * Station key for a menu item: its category as a lowercase slug, e.g. "Hot Beverages" -> "hot-beverages".
+     */
+    public static String stationOf(MenuItem menuItem) {
+        if (menuItem == null || menuItem.getCategory() == null) {
+            return DEFAULT_STATION;
+        }
+        String slug = menuItem.getCategory().trim().toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", "-")
+                .replaceAll("(^-|-$)", "");
+        return slug.isEmpty() ? DEFAULT_STATION : slug;
+    }
+
+    private OrderEvent.OrderEventBuilder event(String type, Order order) {
+        return OrderEvent.builder()
+                .type(type)
+                .orderId(order.getId())
+                .tableId(order.getTable() != null ? order.getTable().getId() : null)
+                .outletId(order.getOutlet() != null ? order.getOutlet().getId() : null)
+                .status(order.getStatus())
+                .totalAmount(order.getTotalAmount())
+                .occurredAt(LocalDateTime.now())
+                .stations(stationsOf(order.getItems()));
+    }
+
+    private static Set<String> stationsOf(Collection<OrderItem> items) {
+        Set<String> stations = new LinkedHashSet<>();
+        for (OrderItem item : items) {
+            stations.add(stationOf(item.getMenuItem()));
+        }
+        return stations;
+    }
+
+    private List<OrderEvent.Line> linesOf(Collection<OrderItem> items) {
+        List<OrderEvent.Line> lines = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            List<String> modifiers = new ArrayList<>();
+            for (OrderItemModifier modifier : item.getModifiers()) {
+                if (modifier.getMenuModifier() != null) {
+                    modifiers.add(modifier.getMenuModifier().getName());
+                }
+            }
+            lines.add(OrderEvent.Line.builder()
+                    .lineId(item.getId())
+                    .menuItemId(item.getMenuItem() != null ? item.getMenuItem().getId() : null)
+                    .name(item.getMenuItem() != null ? item.getMenuItem().getName() : null)
+                    .station(stationOf(item.getMenuItem()))
+                    .quantity(item.getQuantity())
+                    .price(item.getPrice())
+                    .modifiers(modifiers)
+                    .lineTotal(item.getTotalPrice())
+                    .build());
+        }
+        return lines;
+    }
+}
@@ -3,7 +3,6 @@ package com.example.restrosuite.service;
 import com.example.restrosuite.entity.*;
 import com.example.restrosuite.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,9 +19,6 @@ public class OrderService {
     @Autowired
     private OrderRepository orderRepository;
 
-    @Autowired
-    private MenuItemRepository menuItemRepository;
-
     @Autowired
     private TableRepository tableRepository;
 
@@ -30,13 +26,16 @@ public class OrderService {
     private OutletRepository outletRepository;
 
     @Autowired
-    private MenuModifierRepository menuModifierRepository;
+    private MenuCatalogService menuCatalogService;
 
     @Autowired
     private OrderItemModifierRepository orderItemModifierRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private OrderEventPublisher orderEventPublisher;
+
+    @Autowired
+    private TableSessionRegistry tableSessionRegistry;
 
     public Order createOrder(Map<String, Object> payload) {
         UUID tableId = UUID.fromString(payload.get("tableId").toString());
@@ -60,7 +59,7 @@ public class OrderService {
             UUID menuId = UUID.fromString(itemData.get("menuItemId").toString());
             int qty = Integer.parseInt(itemData.get("quantity").toString());
 
-            MenuItem menuItem = menuItemRepository.findById(menuId)
+            MenuItem menuItem = menuCatalogService.findMenuItem(menuId)
                     .orElseThrow(() -> new RuntimeException("Menu item not found: " + menuId));
 
             if (!menuItem.isAvailable()) {
@@ -78,7 +77,7 @@ public class OrderService {
                 
                 for (Map<String, Object> modifierData : modifierDataList) {
                     UUID modifierId = UUID.fromString(modifierData.get("modifierId").toString());
-                    MenuModifier menuModifier = menuModifierRepository.findById(modifierId)
+                    MenuModifier menuModifier = menuCatalogService.findModifier(modifierId)
                             .orElseThrow(() -> new RuntimeException("Menu modifier not found: " + modifierId));
                     
                     if (!menuModifier.getIsActive()) {
@@ -128,9 +127,10 @@ public class OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        tableSessionRegistry.refreshTableAfterCommit(tableId);
         
         // Broadcast new order to all connected clients
-        messagingTemplate.convertAndSend("/topic/orders", savedOrder);
+        orderEventPublisher.publish(orderEventPublisher.created(savedOrder));
         
         return savedOrder;
     }
@@ -138,11 +138,15 @@ public class OrderService {
     public Order updateOrderStatus(UUID orderId, String status) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
+        String previousStatus = order.getStatus();
         order.setStatus(status);
         Order updatedOrder = orderRepository.save(order);
+        if (updatedOrder.getTable() != null) {
+            tableSessionRegistry.refreshTableAfterCommit(updatedOrder.getTable().getId());
+        }
         
         // Broadcast order status update to all connected clients
-        messagingTemplate.convertAndSend("/topic/orders", updatedOrder);
+        orderEventPublisher.publish(orderEventPublisher.statusChanged(updatedOrder, previousStatus));
         
         return updatedOrder;
     }
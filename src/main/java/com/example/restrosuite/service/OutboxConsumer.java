@@ -0,0 +1,26 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+
+import java.util.List;
+
+/**
+ * Receives batches of committed order and bill events from the {@link OutboxDispatcher}.
+ * Batches arrive in sequence order. Consumers that write to the database return true from
+ * {@link #isTransactional()}: each runs in its own transaction, and the events it committed are
+ * recorded so a retry only hands it the events it has not applied. All other consumers (in-memory
+ * counters, cache invalidation, WebSocket broadcast) get only events that every transactional
+ * consumer has committed. Consumers run in {@code @Order} order. Delivery is at-least-once, so
+ * consumers must tolerate seeing an event again.
+ */
+public interface OutboxConsumer {
+
+    void consume(List<OrderEvent> events);
+
+    /**
+     * Whether this consumer writes to the database and must commit before events are broadcast.
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+}
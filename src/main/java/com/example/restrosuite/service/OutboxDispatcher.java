@@ -0,0 +1,323 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes committed outbox events to every {@link OutboxConsumer} in batches, in id order.
+ * Runs right after a transaction that appended events commits, and also polls every
+ * outbox.poll-interval-ms for rows written elsewhere or left over from a failed attempt.
+ * A session-level advisory lock, held for the whole batch, lets only one node dispatch at a time,
+ * which keeps events of an order in order across the cluster.
+ * Each transactional consumer commits the batch in its own transaction and its progress is
+ * recorded per event in outbox_delivery. A failed batch is retried one event at a time, so a
+ * single bad event cannot hold up the rest or make the other consumers redo their work. Only
+ * events every transactional consumer has committed are passed to the remaining consumers (the
+ * WebSocket broadcast among them) and marked published. A failing event is retried on later
+ * runs and parked after outbox.max-attempts, with its last error kept on the row.
+ */
+@Service
+public class OutboxDispatcher implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    // Arbitrary application-wide advisory lock key; also taken by rollup rebuilds and the live counter seed
+    static final long DISPATCH_LOCK_KEY = 0x52535F4F5554424FL;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private List<OutboxConsumer> consumers;
+
+    @Value("${outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    private record OutboxRow(long id, String payload, String stations, int attempts) {
+    }
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        executor.scheduleWithFixedDelay(this::dispatchSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ask for a dispatch run soon. Calls made while a run is already pending are coalesced.
+     */
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpPending.set(false);
+                dispatchSafely();
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void dispatchSafely() {
+        try {
+            // Keep going while full batches are published; failures wait for the next poll
+            while (dispatchBatch() == batchSize) {
+                log.debug("Outbox backlog, dispatching next batch");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox dispatch failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Publish one batch of unpublished events.
+     *
+     * @return number of events published; 0 if none are pending or another node is dispatching
+     */
+    public int dispatchBatch() {
+        // The lock is held on its own connection while each consumer commits on another
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!advisoryLock(lockConnection, "SELECT pg_try_advisory_lock(?)")) {
+                return 0;
+            }
+            try {
+                return dispatchLocked();
+            } finally {
+                advisoryLock(lockConnection, "SELECT pg_advisory_unlock(?)");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to take the outbox dispatch lock: " + e.getMessage(), e);
+        }
+    }
+
+    private int dispatchLocked() {
+        List<OutboxRow> rows = jdbcTemplate.query(
+                "SELECT id, payload, stations, attempts FROM outbox_event "
+                        + "WHERE published_at IS NULL AND parked_at IS NULL ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new OutboxRow(rs.getLong("id"), rs.getString("payload"), rs.getString("stations"),
+                        rs.getInt("attempts")),
+                batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, OrderEvent> events = new LinkedHashMap<>();
+        Map<Long, String> failures = new LinkedHashMap<>();
+        for (OutboxRow row : rows) {
+            try {
+                events.put(row.id(), toEvent(row));
+            } catch (JsonProcessingException e) {
+                // Retrying cannot make an unreadable payload readable
+                park(row.id(), row.attempts() + 1, "Unreadable payload: " + e.getMessage());
+            }
+        }
+
+        long firstId = rows.get(0).id();
+        long lastId = rows.get(rows.size() - 1).id();
+        for (OutboxConsumer consumer : consumers) {
+            if (!consumer.isTransactional()) {
+                continue;
+            }
+            String name = consumerName(consumer);
+            Set<Long> delivered = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT event_id FROM outbox_delivery WHERE consumer = ? AND event_id BETWEEN ? AND ?",
+                    Long.class, name, firstId, lastId));
+            List<OrderEvent> pending = new ArrayList<>();
+            events.forEach((id, event) -> {
+                if (!delivered.contains(id)) {
+                    pending.add(event);
+                }
+            });
+            if (pending.isEmpty()) {
+                continue;
+            }
+            try {
+                consumeAndRecord(consumer, name, pending);
+            } catch (RuntimeException e) {
+                if (pending.size() == 1) {
+                    recordFailure(failures, pending.get(0).getSequence(), name, e);
+                    continue;
+                }
+                log.warn("Outbox consumer {} failed on a batch, retrying events one by one: {}", name, e.getMessage());
+                for (OrderEvent event : pending) {
+                    try {
+                        consumeAndRecord(consumer, name, List.of(event));
+                    } catch (RuntimeException eventError) {
+                        recordFailure(failures, event.getSequence(), name, eventError);
+                    }
+                }
+            }
+        }
+
+        // Every transactional consumer has committed these; only now do clients hear about them
+        List<OrderEvent> committed = new ArrayList<>(events.size());
+        events.forEach((id, event) -> {
+            if (!failures.containsKey(id)) {
+                committed.add(event);
+            }
+        });
+        if (!committed.isEmpty()) {
+            for (OutboxConsumer consumer : consumers) {
+                if (consumer.isTransactional()) {
+                    continue;
+                }
+                try {
+                    consumer.consume(committed);
+                } catch (RuntimeException e) {
+                    log.warn("Outbox consumer {} failed on events {} to {}: {}", consumerName(consumer),
+                            committed.get(0).getSequence(), committed.get(committed.size() - 1).getSequence(),
+                            e.getMessage());
+                }
+            }
+            markPublished(committed);
+        }
+
+        Map<Long, Integer> attempts = new LinkedHashMap<>();
+        for (OutboxRow row : rows) {
+            attempts.put(row.id(), row.attempts());
+        }
+        failures.forEach((id, error) -> markFailed(id, attempts.get(id) + 1, error));
+        return committed.size();
+    }
+
+    private void consumeAndRecord(OutboxConsumer consumer, String name, List<OrderEvent> events) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            consumer.consume(events);
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> args = new ArrayList<>(events.size());
+            for (OrderEvent event : events) {
+                args.add(new Object[]{UUID.randomUUID(), event.getSequence(), name, now});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO outbox_delivery (id, event_id, consumer, delivered_at) VALUES (?, ?, ?, ?)", args);
+        });
+    }
+
+    private static void recordFailure(Map<Long, String> failures, long id, String consumer, RuntimeException e) {
+        failures.merge(id, consumer + ": " + e.getMessage(), (first, next) -> first + "; " + next);
+    }
+
+    private void markPublished(List<OrderEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> publishedArgs = new ArrayList<>(events.size());
+        List<Object[]> idArgs = new ArrayList<>(events.size());
+        for (OrderEvent event : events) {
+            publishedArgs.add(new Object[]{now, event.getSequence()});
+            idArgs.add(new Object[]{event.getSequence()});
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("UPDATE outbox_event SET published_at = ? WHERE id = ?", publishedArgs);
+            jdbcTemplate.batchUpdate("DELETE FROM outbox_delivery WHERE event_id = ?", idArgs);
+        });
+    }
+
+    private void markFailed(long id, int attempts, String error) {
+        if (attempts >= maxAttempts) {
+            park(id, attempts, error);
+            return;
+        }
+        jdbcTemplate.update("UPDATE outbox_event SET attempts = ?, last_error = ? WHERE id = ?",
+                attempts, truncate(error), id);
+        log.warn("Outbox event {} failed (attempt {} of {}), will retry: {}", id, attempts, maxAttempts, error);
+    }
+
+    private void park(long id, int attempts, String error) {
+        jdbcTemplate.update("UPDATE outbox_event SET attempts = ?, last_error = ?, parked_at = ? WHERE id = ?",
+                attempts, truncate(error), LocalDateTime.now(), id);
+        log.error("Parked outbox event {} after {} attempt(s); it will not be dispatched again: {}",
+                id, attempts, error);
+    }
+
+    private static String truncate(String error) {
+        String message = String.valueOf(error);
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private static String consumerName(OutboxConsumer consumer) {
+        return ClassUtils.getUserClass(consumer).getSimpleName();
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, DISPATCH_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Delete published events older than the retention period.
+     *
+     * @return number of rows deleted
+     */
+    public int purgePublished(int retentionHours) {
+        return jdbcTemplate.update("DELETE FROM outbox_event WHERE published_at < ?",
+                LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    private OrderEvent toEvent(OutboxRow row) throws JsonProcessingException {
+        OrderEvent event = objectMapper.readValue(row.payload(), OrderEvent.class);
+        event.setSequence(row.id());
+        if (row.stations() != null && !row.stations().isEmpty()) {
+            event.setStations(new LinkedHashSet<>(Arrays.asList(row.stations().split(","))));
+        }
+        return event;
+    }
+}
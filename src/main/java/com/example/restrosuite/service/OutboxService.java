@@ -0,0 +1,56 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Appends order and bill events to the outbox_event table in the caller's transaction.
+ * Nothing is sent to clients here; the dispatcher publishes the rows once they have committed.
+ */
+@Service
+public class OutboxService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Lazy
+    private OutboxDispatcher outboxDispatcher;
+
+    public void append(OrderEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize order event: " + e.getMessage(), e);
+        }
+        String stations = event.getStations() != null ? String.join(",", event.getStations()) : null;
+        jdbcTemplate.update(
+                "INSERT INTO outbox_event (aggregate_id, event_type, payload, stations, created_at) VALUES (?, ?, ?, ?, ?)",
+                event.getOrderId(), event.getType(), payload, stations, LocalDateTime.now());
+
+        // Dispatch right after commit instead of waiting for the next poll
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxDispatcher.wakeUp();
+                }
+            });
+        } else {
+            outboxDispatcher.wakeUp();
+        }
+    }
+}
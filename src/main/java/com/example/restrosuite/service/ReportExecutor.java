@@ -0,0 +1,165 @@
+package com.example.restrosuite.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent legs of a report (one aggregate query each) concurrently, so a report
+ * takes as long as its slowest leg instead of the sum of them. Legs run on a bounded pool; when
+ * the pool and its queue are full a leg runs on the calling thread instead of being dropped.
+ * Each leg has its own deadline counted from when it was started, and its duration is recorded
+ * as {@code report.leg} tagged with the report, leg and outcome (success, error or timeout).
+ * <p>
+ * Each leg runs in its own read-only transaction whose timeout is what is left of the deadline,
+ * so the database cancels a leg's statements once it is overdue instead of the query running on
+ * after the caller gave up. Legs run outside the caller's transaction and persistence context,
+ * so they must not return lazily loaded entities.
+ */
+@Service
+public class ReportExecutor {
+
+    private final ThreadPoolExecutor workers;
+    private final long legTimeoutMs;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+    private final Counter timeouts;
+
+    public ReportExecutor(MeterRegistry meterRegistry,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${analytics.report.threads:8}") int threads,
+                          @Value("${analytics.report.queue:64}") int queue,
+                          @Value("${analytics.report.leg-timeout-ms:10000}") long legTimeoutMs) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread thread = new Thread(r, "report-leg-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.workers.allowCoreThreadTimeOut(true);
+        this.legTimeoutMs = legTimeoutMs;
+        this.meterRegistry = meterRegistry;
+        this.transactionManager = transactionManager;
+        this.timeouts = Counter.builder("report.leg.timeouts")
+                .description("Report legs abandoned after the per-leg timeout")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Start a report; its legs are added with {@link Report#leg}.
+     */
+    public Report start(String report) {
+        return new Report(report);
+    }
+
+    /**
+     * One run of a report, used by a single request thread.
+     */
+    public final class Report {
+
+        private final String name;
+
+        private Report(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Start a leg in the background. Its result is collected with {@link Leg#join()}.
+         */
+        public <T> Leg<T> leg(String leg, Supplier<T> task) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(legTimeoutMs);
+            CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                String outcome = "error";
+                try {
+                    T result = runBefore(deadline, task);
+                    outcome = "success";
+                    return result;
+                } catch (RuntimeException e) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        outcome = "timeout";
+                    }
+                    throw e;
+                } finally {
+                    Timer.builder("report.leg")
+                            .description("Time to compute one leg of a report")
+                            .tags("report", name, "leg", leg, "outcome", outcome)
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, workers);
+            return new Leg<>(name, leg, future, deadline);
+        }
+
+        // Statements issued in the transaction get its remaining time as their query timeout
+        private <T> T runBefore(long deadline, Supplier<T> task) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                throw new RuntimeException("Report " + name + " ran out of time before a leg started");
+            }
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMs + 999)));
+            return tx.execute(status -> task.get());
+        }
+    }
+
+    /**
+     * A running leg of a report.
+     */
+    public final class Leg<T> {
+
+        private final String report;
+        private final String name;
+        private final CompletableFuture<T> future;
+        private final long deadline;
+
+        private Leg(String report, String name, CompletableFuture<T> future, long deadline) {
+            this.report = report;
+            this.name = name;
+            this.future = future;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Wait for the leg's result until its deadline.
+         *
+         * @throws RuntimeException if the leg failed or did not finish in time
+         */
+        public T join() {
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // The leg's own transaction timeout cancels its query on the database side
+                timeouts.increment();
+                throw new RuntimeException("Report " + report + " timed out computing " + name);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re
+                        : new RuntimeException("Report " + report + " failed computing " + name, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while computing report " + report);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.example.restrosuite.entity.SalesRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Hourly sales rollups per outlet (sales_rollup), kept current from the order and bill events in
+ * the outbox. For every order touched by a batch the current order and bill are read back and
+ * only the difference from what sales_rollup_order says was already rolled up is applied, so
+ * repeated, replayed or out-of-date events never double count. Analytics read these rollups
+ * instead of scanning orders, so their cost depends on the number of hours asked for, not on
+ * the number of orders. The rollups are rebuilt from orders and bills on startup when empty.
+ */
+@Service
+@Order(10)
+public class SalesRollupService implements OutboxConsumer, ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Order, gross, tax and discount totals over a time range. Amounts are in paise.
+     */
+    public record SalesTotals(long orders, long grossPaise, long taxPaise, long discountPaise) {
+
+        public double gross() {
+            return BillCalculator.toRupees(grossPaise);
+        }
+
+        public double tax() {
+            return BillCalculator.toRupees(taxPaise);
+        }
+
+        public double discount() {
+            return BillCalculator.toRupees(discountPaise);
+        }
+    }
+
+    /**
+     * Orders created from {@code from} (null for all time) up to and including {@code to}.
+     * Ranges are resolved to whole hours.
+     */
+    public record Range(LocalDateTime from, LocalDateTime to) {
+    }
+
+    private record BucketKey(UUID outletId, LocalDateTime bucketStart) {
+    }
+
+    private record Delta(long orders, long grossPaise, long taxPaise, long discountPaise) {
+
+        Delta plus(Delta other) {
+            return new Delta(orders + other.orders, grossPaise + other.grossPaise,
+                    taxPaise + other.taxPaise, discountPaise + other.discountPaise);
+        }
+    }
+
+    private record OrderState(UUID orderId, UUID outletId, LocalDateTime createdAt, double totalAmount,
+                              boolean rolledUp, UUID rolledOutletId, LocalDateTime rolledBucket,
+                              long rolledTotalPaise, UUID rolledBillId) {
+    }
+
+    private record BillAmounts(UUID billId, long taxPaise, long discountPaise) {
+    }
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        Boolean tracked = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM sales_rollup_order)", Boolean.class);
+        if (!Boolean.TRUE.equals(tracked)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Apply the batch's orders and bills to the rollups. Runs in its own dispatcher transaction,
+     * before any event of the batch is broadcast.
+     */
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    public void consume(List<OrderEvent> events) {
+        Set<UUID> orderIds = new LinkedHashSet<>();
+        Set<UUID> billIds = new LinkedHashSet<>();
+        for (OrderEvent event : events) {
+            if (event.getOrderId() != null) {
+                orderIds.add(event.getOrderId());
+            }
+            if (OrderEvent.BILLED.equals(event.getType()) && event.getBillId() != null) {
+                billIds.add(event.getBillId());
+            }
+        }
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        // A bill's tax and discount are rolled up once, with the bill's primary order
+        Map<UUID, BillAmounts> billsByPrimaryOrder = loadBillsByPrimaryOrder(billIds);
+
+        Map<BucketKey, Delta> deltas = new HashMap<>();
+        List<Object[]> trackingArgs = new ArrayList<>();
+        for (OrderState order : loadOrders(orderIds)) {
+            if (order.createdAt() == null) {
+                continue;
+            }
+            UUID outletId = order.rolledUp() ? order.rolledOutletId()
+                    : order.outletId() != null ? order.outletId() : SalesRollup.NO_OUTLET;
+            LocalDateTime bucket = order.rolledUp() ? order.rolledBucket()
+                    : order.createdAt().truncatedTo(ChronoUnit.HOURS);
+            long totalPaise = BillCalculator.toPaise(order.totalAmount());
+            UUID billId = order.rolledBillId();
+
+            Delta delta = new Delta(order.rolledUp() ? 0 : 1, totalPaise - order.rolledTotalPaise(), 0, 0);
+            BillAmounts bill = billsByPrimaryOrder.get(order.orderId());
+            if (billId == null && bill != null) {
+                delta = delta.plus(new Delta(0, 0, bill.taxPaise(), bill.discountPaise()));
+                billId = bill.billId();
+            }
+            if (order.rolledUp() && delta.equals(new Delta(0, 0, 0, 0))) {
+                continue;
+            }
+            deltas.merge(new BucketKey(outletId, bucket), delta, Delta::plus);
+            trackingArgs.add(new Object[]{order.orderId(), outletId, Timestamp.valueOf(bucket), totalPaise, billId});
+        }
+        if (trackingArgs.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rollupArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> rollupArgs.add(new Object[]{key.outletId(), Timestamp.valueOf(key.bucketStart()),
+                delta.orders(), delta.grossPaise(), delta.taxPaise(), delta.discountPaise()}));
+        jdbcTemplate.batchUpdate("INSERT INTO sales_rollup "
+                + "(outlet_id, bucket_start, order_count, gross_paise, tax_paise, discount_paise) VALUES (?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (outlet_id, bucket_start) DO UPDATE SET "
+                + "order_count = sales_rollup.order_count + EXCLUDED.order_count, "
+                + "gross_paise = sales_rollup.gross_paise + EXCLUDED.gross_paise, "
+                + "tax_paise = sales_rollup.tax_paise + EXCLUDED.tax_paise, "
+                + "discount_paise = sales_rollup.discount_paise + EXCLUDED.discount_paise", rollupArgs);
+        jdbcTemplate.batchUpdate("INSERT INTO sales_rollup_order "
+                + "(order_id, outlet_id, bucket_start, total_paise, bill_id) VALUES (?, ?, ?, ?, ?) "
+                + "ON CONFLICT (order_id) DO UPDATE SET total_paise = EXCLUDED.total_paise, bill_id = EXCLUDED.bill_id",
+                trackingArgs);
+    }
+
+    /**
+     * Recompute all rollups from orders and bills. Holds the outbox dispatch lock so no batch is
+     * applied halfway through; events dispatched afterwards only add their difference.
+     */
+    public void rebuild() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Integer orders = tx.execute(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> {
+            }, OutboxDispatcher.DISPATCH_LOCK_KEY);
+            jdbcTemplate.update("DELETE FROM sales_rollup");
+            jdbcTemplate.update("DELETE FROM sales_rollup_order");
+            int tracked = jdbcTemplate.update("INSERT INTO sales_rollup_order "
+                    + "(order_id, outlet_id, bucket_start, total_paise, bill_id) "
+                    + "SELECT o.id, COALESCE(o.outlet_id, ?), date_trunc('hour', o.created_at), "
+                    + "ROUND((o.total_amount * 100)::numeric), "
+                    + "(SELECT b.id FROM bill b WHERE b.order_id = o.id ORDER BY b.generated_at LIMIT 1) "
+                    + "FROM orders o WHERE o.created_at IS NOT NULL", SalesRollup.NO_OUTLET);
+            jdbcTemplate.update("INSERT INTO sales_rollup "
+                    + "(outlet_id, bucket_start, order_count, gross_paise, tax_paise, discount_paise) "
+                    + "SELECT r.outlet_id, r.bucket_start, COUNT(*), SUM(r.total_paise), "
+                    + "COALESCE(SUM(ROUND((b.tax * 100)::numeric)), 0), "
+                    + "COALESCE(SUM(ROUND((b.discount_amount * 100)::numeric)), 0) "
+                    + "FROM sales_rollup_order r LEFT JOIN bill b ON b.id = r.bill_id "
+                    + "GROUP BY r.outlet_id, r.bucket_start");
+            return tracked;
+        });
+        log.info("Sales rollups rebuilt from {} order(s)", orders);
+    }
+
+    /**
+     * Totals for each range, computed in a single pass over the rollups.
+     *
+     * @param outletId only this outlet's sales, or null for all outlets
+     */
+    public List<SalesTotals> totals(List<Range> ranges, UUID outletId) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<Object> args = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            String filter = range.from() != null
+                    ? " FILTER (WHERE bucket_start >= ? AND bucket_start <= ?)"
+                    : " FILTER (WHERE bucket_start <= ?)";
+            for (String column : List.of("order_count", "gross_paise", "tax_paise", "discount_paise")) {
+                sql.append(i > 0 || !column.equals("order_count") ? ", " : "")
+                        .append("COALESCE(SUM(").append(column).append(')').append(filter).append(", 0)");
+                if (range.from() != null) {
+                    args.add(Timestamp.valueOf(range.from().truncatedTo(ChronoUnit.HOURS)));
+                }
+                args.add(Timestamp.valueOf(range.to()));
+            }
+        }
+        sql.append(" FROM sales_rollup");
+        if (outletId != null) {
+            sql.append(" WHERE outlet_id = ?");
+            args.add(outletId);
+        }
+        return jdbcTemplate.queryForObject(sql.toString(), (rs, rowNum) -> {
+            List<SalesTotals> totals = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                int column = i * 4 + 1;
+                totals.add(new SalesTotals(rs.getLong(column), rs.getLong(column + 1),
+                        rs.getLong(column + 2), rs.getLong(column + 3)));
+            }
+            return totals;
+        }, args.toArray());
+    }
+
+    public SalesTotals totals(Range range, UUID outletId) {
+        return totals(List.of(range), outletId).get(0);
+    }
+
+    private List<OrderState> loadOrders(Collection<UUID> orderIds) {
+        RowMapper<OrderState> mapper = (rs, rowNum) -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            Timestamp rolledBucket = rs.getTimestamp("rolled_bucket");
+            return new OrderState(rs.getObject("id", UUID.class), rs.getObject("outlet_id", UUID.class),
+                    createdAt != null ? createdAt.toLocalDateTime() : null, rs.getDouble("total_amount"),
+                    rolledBucket != null, rs.getObject("rolled_outlet_id", UUID.class),
+                    rolledBucket != null ? rolledBucket.toLocalDateTime() : null,
+                    rs.getLong("rolled_total_paise"), rs.getObject("rolled_bill_id", UUID.class));
+        };
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT o.id, o.outlet_id, o.created_at, o.total_amount, "
+                    + "r.outlet_id AS rolled_outlet_id, r.bucket_start AS rolled_bucket, "
+                    + "r.total_paise AS rolled_total_paise, r.bill_id AS rolled_bill_id "
+                    + "FROM orders o LEFT JOIN sales_rollup_order r ON r.order_id = o.id "
+                    + "WHERE o.id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("uuid", orderIds.toArray()));
+            return ps;
+        }, mapper);
+    }
+
+    private Map<UUID, BillAmounts> loadBillsByPrimaryOrder(Collection<UUID> billIds) {
+        Map<UUID, BillAmounts> bills = new HashMap<>();
+        if (billIds.isEmpty()) {
+            return bills;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, order_id, tax, discount_amount FROM bill WHERE id = ANY(?) AND order_id IS NOT NULL");
+            ps.setArray(1, con.createArrayOf("uuid", billIds.toArray()));
+            return ps;
+        }, rs -> {
+            bills.put(rs.getObject("order_id", UUID.class), new BillAmounts(rs.getObject("id", UUID.class),
+                    BillCalculator.toPaise(rs.getDouble("tax")), BillCalculator.toPaise(rs.getDouble("discount_amount"))));
+        });
+        return bills;
+    }
+}
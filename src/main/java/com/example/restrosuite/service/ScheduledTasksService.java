@@ -2,6 +2,8 @@ package com.example.restrosuite.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +16,21 @@ public class ScheduledTasksService {
 
     private static final Logger log = LoggerFactory.getLogger(ScheduledTasksService.class);
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private InventoryDeductionWorker inventoryDeductionWorker;
+
+    @Value("${outbox.retention-hours:24}")
+    private int outboxRetentionHours;
+
     /**
      * Example: Run every hour
      * Cron format: second minute hour day month weekday
@@ -42,5 +59,48 @@ public class ScheduledTasksService {
         // Commented out to avoid log spam
         // log.debug("Frequent task executed");
     }
-}
 
+    /**
+     * Fold striped stock shards of hot ingredients back into the ingredient row
+     */
+    @Scheduled(fixedDelayString = "${inventory.shard-compaction-interval-ms:60000}")
+    public void compactStockShards() {
+        int compacted = inventoryService.compactStockShards();
+        if (compacted > 0) {
+            log.debug("Compacted stock shards for {} ingredient(s)", compacted);
+        }
+    }
+
+    /**
+     * Deduct stock for billed orders queued by BILLED events
+     */
+    @Scheduled(fixedDelayString = "${inventory.deduction-interval-ms:500}")
+    public void processStockDeductions() {
+        int deducted = inventoryDeductionWorker.processDueDeductions();
+        if (deducted > 0) {
+            log.debug("Deducted stock for {} bill(s)", deducted);
+        }
+    }
+
+    /**
+     * Drop expired idempotency keys
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:300000}")
+    public void purgeIdempotencyKeys() {
+        int purged = idempotencyStore.purgeExpired();
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency key(s)", purged);
+        }
+    }
+
+    /**
+     * Drop outbox events that were published longer ago than the retention period
+     */
+    @Scheduled(cron = "0 15 * * * ?") // Every hour at minute 15
+    public void purgePublishedOutboxEvents() {
+        int purged = outboxDispatcher.purgePublished(outboxRetentionHours);
+        if (purged > 0) {
+            log.debug("Purged {} published outbox event(s)", purged);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.TableEntity;
+import com.example.restrosuite.repository.BillRepository;
+import com.example.restrosuite.repository.OrderRepository;
+import com.example.restrosuite.repository.TableRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory view of each table's current session: its active order, the latest completed order
+ * and how many completed orders are still unbilled. The public table endpoint reads from here on
+ * every QR scan and poll; order and bill writes refresh the affected table after they commit.
+ */
+@Service
+public class TableSessionRegistry implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(TableSessionRegistry.class);
+
+    private static final TypeReference<List<Map<String, Object>>> ITEM_LIST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private TableRepository tableRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<UUID, TableSession> sessions = new ConcurrentHashMap<>();
+
+    // Loads are stamped when they start; a slower, older load never replaces a newer one
+    private final AtomicLong loadSequence = new AtomicLong();
+
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Reload every table's session from the database.
+     */
+    public void rebuild() {
+        List<UUID> tableIds = tableRepository.findAll().stream().map(TableEntity::getId).toList();
+        sessions.keySet().retainAll(tableIds);
+        for (UUID tableId : tableIds) {
+            refreshTable(tableId);
+        }
+        log.info("Table session registry loaded {} table(s)", sessions.size());
+    }
+
+    /**
+     * Current session for a table. Tables not seen yet (e.g. created on another node) are
+     * loaded once from the database.
+     */
+    public Optional<TableSession> getSession(UUID tableId) {
+        TableSession session = sessions.get(tableId);
+        if (session == null) {
+            session = refreshTable(tableId);
+        }
+        return Optional.ofNullable(session);
+    }
+
+    /**
+     * Re-read one table's session once the surrounding transaction commits, or immediately
+     * when called outside a transaction.
+     */
+    public void refreshTableAfterCommit(UUID tableId) {
+        if (tableId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshTable(tableId);
+                }
+            });
+        } else {
+            refreshTable(tableId);
+        }
+    }
+
+    public void removeTable(UUID tableId) {
+        sessions.remove(tableId);
+    }
+
+    /**
+     * Load a table's session in its own read-only transaction so lazy order items can be
+     * rendered, then publish it.
+     */
+    public TableSession refreshTable(UUID tableId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        tx.setReadOnly(true);
+        long sequence = loadSequence.incrementAndGet();
+        TableSession session = tx.execute(status -> loadSession(tableId, sequence));
+        if (session == null) {
+            sessions.remove(tableId);
+            return null;
+        }
+        return sessions.merge(tableId, session,
+                (current, loaded) -> loaded.sequence() > current.sequence() ? loaded : current);
+    }
+
+    private TableSession loadSession(UUID tableId, long sequence) {
+        Optional<TableEntity> tableOpt = tableRepository.findById(tableId);
+        if (tableOpt.isEmpty()) {
+            return null;
+        }
+        TableEntity table = tableOpt.get();
+
+        OrderSnapshot activeOrder = orderRepository.findLatestActiveOrderByTableId(tableId)
+                .map(this::snapshotOf)
+                .orElse(null);
+
+        OrderSnapshot latestCompletedOrder = null;
+        boolean latestCompletedBilled = false;
+        long unbilledCompletedCount = 0;
+        if (activeOrder == null) {
+            Optional<Order> latestCompleted = orderRepository.findLatestCompletedOrderByTableId(tableId);
+            if (latestCompleted.isPresent()) {
+                latestCompletedOrder = snapshotOf(latestCompleted.get());
+                latestCompletedBilled = billRepository.existsByOrderId(latestCompleted.get().getId());
+                unbilledCompletedCount = orderRepository.countUnbilledCompletedOrdersByTableId(tableId);
+            }
+        }
+
+        return new TableSession(sequence, table.getId(), table.getTableNumber(), table.getLocation(), table.getCapacity(),
+                table.isOccupied(), activeOrder, latestCompletedOrder, latestCompletedBilled,
+                (int) unbilledCompletedCount);
+    }
+
+    private OrderSnapshot snapshotOf(Order order) {
+        // Render items once per change in the same JSON shape the entity graph serializes to
+        List<Map<String, Object>> items = objectMapper.convertValue(order.getItems(), ITEM_LIST);
+        return new OrderSnapshot(order.getId(), order.getStatus(), order.getTotalAmount(), order.getCreatedAt(),
+                List.copyOf(items));
+    }
+
+    /**
+     * Read-only snapshot of an order as shown to customers at the table.
+     */
+    public record OrderSnapshot(UUID orderId, String status, double totalAmount, LocalDateTime createdAt,
+                                List<Map<String, Object>> items) {
+    }
+
+    /**
+     * Read-only snapshot of a table's current session.
+     * latestCompletedOrder and the unbilled count are only populated when there is no active order.
+     */
+    public record TableSession(long sequence, UUID tableId, String tableNumber, String location, Integer capacity,
+                               boolean occupied, OrderSnapshot activeOrder, OrderSnapshot latestCompletedOrder,
+                               boolean latestCompletedBilled, int unbilledCompletedCount) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.restrosuite;
+
+import com.example.restrosuite.service.LiveSalesCounters;
+import com.example.restrosuite.service.SalesRollupService;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Base for tests that need the full application context on the H2 test profile. Keeping the
+ * context configuration in one place lets every subclass share a single cached context.
+ * Beans that need Postgres-only features (advisory locks) are replaced by mocks.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public abstract class IntegrationTest {
+
+    @MockitoBean
+    private SalesRollupService salesRollupService;
+
+    @MockitoBean
+    private LiveSalesCounters liveSalesCounters;
+}
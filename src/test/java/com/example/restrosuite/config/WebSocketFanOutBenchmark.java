@@ -0,0 +1,105 @@
+package com.example.restrosuite.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fan-out of order events to simulated STOMP subscribers through the per-session outbound
+ * queues. Each event body is serialized once; only the per-subscription frame headers are
+ * encoded per session. A share of the subscribers are slow tablets. Run with
+ * {@code mvn test -Pbenchmark}; {@code -Dbenchmark.subscribers} (default 500),
+ * {@code -Dbenchmark.events} and {@code -Dbenchmark.slowPercent} size the run.
+ */
+@Tag("benchmark")
+class WebSocketFanOutBenchmark {
+
+    private static final int SUBSCRIBERS = Integer.getInteger("benchmark.subscribers", 500);
+    private static final int EVENTS = Integer.getInteger("benchmark.events", 2_000);
+    private static final int SLOW_PERCENT = Integer.getInteger("benchmark.slowPercent", 5);
+
+    @Test
+    void fanOut() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WebSocketOutboundQueues queues = new WebSocketOutboundQueues(meterRegistry, 256, 16);
+        // The decorated handler passes each queued session on to the broker handler; collect them
+        List<WebSocketSession> sessions = new ArrayList<>();
+        WebSocketHandler broker = mock(WebSocketHandler.class);
+        doAnswer(invocation -> sessions.add(invocation.getArgument(0))).when(broker).afterConnectionEstablished(any());
+        WebSocketHandler decorated = queues.decorate(broker);
+        AtomicLong deliveredMessages = new AtomicLong();
+        AtomicLong deliveredBytes = new AtomicLong();
+
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            boolean slow = i * 100 < SUBSCRIBERS * SLOW_PERCENT;
+            WebSocketSession tablet = mock(WebSocketSession.class);
+            when(tablet.getId()).thenReturn("s" + i);
+            when(tablet.isOpen()).thenReturn(true);
+            doAnswer(invocation -> {
+                if (slow) {
+                    Thread.sleep(1);
+                }
+                deliveredMessages.incrementAndGet();
+                deliveredBytes.addAndGet(((WebSocketMessage<?>) invocation.getArgument(0)).getPayloadLength());
+                return null;
+            }).when(tablet).sendMessage(any());
+            decorated.afterConnectionEstablished(tablet);
+        }
+
+        StompEncoder encoder = new StompEncoder();
+        long start = System.nanoTime();
+        for (int e = 0; e < EVENTS; e++) {
+            // Every other event is a status change that a newer one for the same order supersedes
+            boolean status = e % 2 == 1;
+            String orderId = "order-" + (e % 40);
+            byte[] body = ("{\"sequence\":" + e + ",\"type\":\"" + (status ? "STATUS_CHANGED" : "ITEMS_ADDED")
+                    + "\",\"orderId\":\"" + orderId + "\",\"status\":\"IN_PROGRESS\",\"totalAmount\":1240.0}")
+                    .getBytes(StandardCharsets.UTF_8);
+            for (int s = 0; s < sessions.size(); s++) {
+                StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+                headers.setDestination("/topic/orders");
+                headers.setSubscriptionId("sub-" + s);
+                headers.setMessageId(e + "-" + s);
+                if (status) {
+                    headers.setNativeHeader(WebSocketOutboundQueues.CONFLATION_KEY_HEADER, orderId);
+                }
+                byte[] frame = encoder.encode(MessageBuilder.createMessage(body, headers.getMessageHeaders()));
+                sessions.get(s).sendMessage(new TextMessage(frame));
+            }
+        }
+        double enqueueSeconds = (System.nanoTime() - start) / 1e9;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (meterRegistry.get("websocket.outbound.queue.depth").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+        queues.shutdown();
+
+        System.out.printf("fan-out: %d subscribers (%d%% slow), %d events: enqueue %.2fs (%.0f events/s), "
+                        + "drained %.2fs, %d messages / %d KiB delivered, %.0f conflated, %.0f dropped%n",
+                SUBSCRIBERS, SLOW_PERCENT, EVENTS, enqueueSeconds, EVENTS / enqueueSeconds, totalSeconds,
+                deliveredMessages.get(), deliveredBytes.get() / 1024,
+                meterRegistry.get("websocket.outbound.conflated").counter().count(),
+                meterRegistry.get("websocket.outbound.dropped").counter().count());
+    }
+}
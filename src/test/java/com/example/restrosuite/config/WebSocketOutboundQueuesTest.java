@@ -0,0 +1,132 @@
+package com.example.restrosuite.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebSocketOutboundQueuesTest {
+
+    private static final int QUEUE_LIMIT = 3;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebSocketOutboundQueues queues = new WebSocketOutboundQueues(meterRegistry, QUEUE_LIMIT, 1);
+
+    // The fake tablet blocks on its first send until released, so later sends pile up in its queue
+    private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final WebSocketSession tablet = mock(WebSocketSession.class);
+    private final WebSocketHandler handler = mock(WebSocketHandler.class);
+
+    @AfterEach
+    void shutdown() {
+        queues.shutdown();
+    }
+
+    @Test
+    void newerStatusReplacesQueuedOne() throws Exception {
+        WebSocketSession session = connect();
+        session.sendMessage(frame("first", null));
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+
+        session.sendMessage(frame("order-1 IN_PROGRESS", "order-1"));
+        session.sendMessage(frame("order-2 IN_PROGRESS", "order-2"));
+        session.sendMessage(frame("order-1 COMPLETED", "order-1"));
+        assertEquals(2.0, meterRegistry.get("websocket.outbound.queue.depth").gauge().value());
+        assertEquals(2.0, meterRegistry.get("websocket.outbound.queue.max_depth").gauge().value());
+
+        release.countDown();
+        verify(tablet, timeout(5000).times(3)).sendMessage(any());
+        // The newer status moves to the tail, so it never overtakes frames queued before it
+        assertEquals(List.of("first", "order-2 IN_PROGRESS", "order-1 COMPLETED"), delivered);
+        assertEquals(1.0, meterRegistry.get("websocket.outbound.conflated").counter().count());
+        verify(tablet, never()).close(any());
+    }
+
+    @Test
+    void overflowDropsBacklogAndClosesSession() throws Exception {
+        WebSocketSession session = connect();
+        session.sendMessage(frame("first", null));
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < QUEUE_LIMIT; i++) {
+            session.sendMessage(frame("queued " + i, null));
+        }
+        session.sendMessage(frame("overflow", null));
+        verify(tablet).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(QUEUE_LIMIT + 1.0, meterRegistry.get("websocket.outbound.dropped").counter().count());
+        assertEquals(1.0, meterRegistry.get("websocket.outbound.overflow.closed").counter().count());
+        assertEquals(0.0, meterRegistry.get("websocket.outbound.queue.depth").gauge().value());
+
+        // Nothing queued before or after the overflow is delivered
+        session.sendMessage(frame("late", null));
+        release.countDown();
+        Thread.sleep(100);
+        assertEquals(List.of("first"), delivered);
+    }
+
+    @Test
+    void closedSessionLeavesOnlyAggregateMeters() throws Exception {
+        WebSocketHandler decorated = queues.decorate(handler);
+        WebSocketSession session = connect(decorated);
+        assertEquals(1.0, meterRegistry.get("websocket.outbound.sessions").gauge().value());
+
+        decorated.afterConnectionClosed(tablet, CloseStatus.NORMAL);
+        verify(handler).afterConnectionClosed(session, CloseStatus.NORMAL);
+        assertEquals(0.0, meterRegistry.get("websocket.outbound.sessions").gauge().value());
+        assertEquals(0.0, meterRegistry.get("websocket.outbound.queue.max_depth").gauge().value());
+        // No meter is tagged per session, so the meter count does not grow with connections
+        assertTrue(meterRegistry.getMeters().stream().allMatch(meter -> meter.getId().getTag("session") == null));
+    }
+
+    private WebSocketSession connect() throws Exception {
+        return connect(queues.decorate(handler));
+    }
+
+    private WebSocketSession connect(WebSocketHandler decorated) throws Exception {
+        when(tablet.getId()).thenReturn("s1");
+        when(tablet.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            firstSendStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            String payload = ((TextMessage) invocation.getArgument(0)).getPayload();
+            delivered.add(payload.substring(payload.indexOf("\n\n") + 2, payload.length() - 1));
+            return null;
+        }).when(tablet).sendMessage(any(WebSocketMessage.class));
+
+        decorated.afterConnectionEstablished(tablet);
+        ArgumentCaptor<WebSocketSession> queued = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(queued.capture());
+        return queued.getValue();
+    }
+
+    private static TextMessage frame(String body, String conflationKey) {
+        StringBuilder frame = new StringBuilder("MESSAGE\ndestination:/topic/orders\n");
+        if (conflationKey != null) {
+            frame.append(WebSocketOutboundQueues.CONFLATION_KEY_HEADER).append(':').append(conflationKey).append('\n');
+        }
+        return new TextMessage(frame.append('\n').append(body).append('\0').toString());
+    }
+}
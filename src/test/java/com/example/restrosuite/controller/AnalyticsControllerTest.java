@@ -0,0 +1,107 @@
+package com.example.restrosuite.controller;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.Bill;
+import com.example.restrosuite.entity.Employee;
+import com.example.restrosuite.entity.Payroll;
+import com.example.restrosuite.entity.PurchaseOrder;
+import com.example.restrosuite.repository.BillRepository;
+import com.example.restrosuite.repository.EmployeeRepository;
+import com.example.restrosuite.repository.PayrollRepository;
+import com.example.restrosuite.repository.PurchaseOrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fixtures are dated in 2031 so the seed data and other tests' rows stay outside the queried range.
+ */
+class AnalyticsControllerTest extends IntegrationTest {
+
+    private static final LocalDate FROM = LocalDate.of(2031, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2031, 3, 31);
+
+    @Autowired
+    private AnalyticsController analyticsController;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private PurchaseOrderRepository purchaseOrderRepository;
+
+    @Autowired
+    private PayrollRepository payrollRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    void profitLossAndCashFlowSumOnlyTheRequestedPeriod() {
+        // Both range ends are inclusive: start of the first day to 23:59:59 on the last
+        bill(FROM.atStartOfDay(), 100.25);
+        bill(TO.atTime(23, 59, 59), 200.50);
+        bill(FROM.minusDays(1).atTime(23, 59, 59), 1000.0);
+        bill(TO.plusDays(1).atStartOfDay(), 1000.0);
+
+        purchaseOrder(FROM.atTime(9, 0), 12.5, 4);
+        purchaseOrder(TO.atTime(18, 0), 3.0, 2.5);
+        purchaseOrder(TO.plusDays(1).atTime(9, 0), 1000.0, 1);
+
+        Employee employee = employeeRepository.save(Employee.builder()
+                .name("Ravi").employeeId("E-" + UUID.randomUUID()).basicSalary(30000.0)
+                .joinDate(LocalDate.of(2030, 1, 1)).isActive(true).build());
+        payroll(employee, FROM, 25000.0, "PAID");
+        payroll(employee, TO, 26000.0, "PAID");
+        payroll(employee, TO, 1000.0, "PENDING");
+        payroll(employee, TO.plusDays(1), 1000.0, "PAID");
+
+        double revenue = 100.25 + 200.50;
+        double purchases = 12.5 * 4 + 3.0 * 2.5;
+        double payroll = 25000.0 + 26000.0;
+
+        Map<String, Object> profitLoss = analyticsController.getProfitAndLoss(FROM.toString(), TO.toString());
+        assertEquals(revenue, (double) profitLoss.get("revenue"), 0.001);
+        assertEquals(purchases, (double) profitLoss.get("purchaseExpenses"), 0.001);
+        assertEquals(payroll, (double) profitLoss.get("payrollExpenses"), 0.001);
+        assertEquals(revenue - purchases - payroll, (double) profitLoss.get("netProfit"), 0.001);
+        assertEquals(2L, profitLoss.get("totalBills"));
+        assertEquals(2L, profitLoss.get("totalPurchaseOrders"));
+        assertEquals(2L, profitLoss.get("totalPayrolls"));
+
+        Map<String, Object> cashFlow = analyticsController.getCashFlow(FROM.toString(), TO.toString());
+        assertEquals(revenue, (double) cashFlow.get("cashInflows"), 0.001);
+        assertEquals(purchases + payroll, (double) cashFlow.get("cashOutflows"), 0.001);
+        assertEquals(2L, cashFlow.get("totalBills"));
+    }
+
+    @Test
+    void emptyPeriodReportsZeroes() {
+        Map<String, Object> profitLoss = analyticsController.getProfitAndLoss("2032-01-01", "2032-01-31");
+        assertEquals(0.0, profitLoss.get("revenue"));
+        assertEquals(0.0, profitLoss.get("expenses"));
+        assertEquals(0.0, profitLoss.get("profitMargin"));
+        assertEquals(0L, profitLoss.get("totalBills"));
+    }
+
+    private void bill(LocalDateTime generatedAt, double grandTotal) {
+        billRepository.save(Bill.builder().generatedAt(generatedAt).totalAmount(grandTotal)
+                .grandTotal(grandTotal).build());
+    }
+
+    private void purchaseOrder(LocalDateTime date, double cost, double quantity) {
+        purchaseOrderRepository.save(PurchaseOrder.builder().date(date).cost(cost).quantity(quantity).build());
+    }
+
+    private void payroll(Employee employee, LocalDate paymentDate, double netSalary, String status) {
+        payrollRepository.save(Payroll.builder().employee(employee).month(paymentDate.getMonthValue())
+                .year(paymentDate.getYear()).basicSalary(netSalary).netSalary(netSalary)
+                .paymentDate(paymentDate).status(status).build());
+    }
+}
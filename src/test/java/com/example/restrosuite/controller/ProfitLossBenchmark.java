@@ -0,0 +1,95 @@
+package com.example.restrosuite.controller;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.Bill;
+import com.example.restrosuite.repository.BillRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Profit/loss latency as the bill table grows, for the database aggregate against the previous
+ * load-everything-and-filter approach. Half of the bills fall inside the queried month. Run with
+ * {@code mvn test -Pbenchmark}; {@code -Dbenchmark.bills} is a comma-separated list of table sizes
+ * (e.g. 10000,1000000,10000000), and pointing {@code -Dspring.datasource.url} at a scratch
+ * Postgres database shows the index-only scans.
+ */
+@Tag("benchmark")
+class ProfitLossBenchmark extends IntegrationTest {
+
+    private static final String SIZES = System.getProperty("benchmark.bills", "10000,100000");
+    // The in-memory baseline is skipped above this many bills
+    private static final int FIND_ALL_LIMIT = Integer.getInteger("benchmark.findAllLimit", 1_000_000);
+    private static final LocalDate FROM = LocalDate.of(2033, 6, 1);
+    private static final LocalDate TO = LocalDate.of(2033, 6, 30);
+    private static final int REPEATS = 5;
+
+    @Autowired
+    private AnalyticsController analyticsController;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void profitLossScaling() {
+        int inserted = 0;
+        for (String size : SIZES.split(",")) {
+            int bills = Integer.parseInt(size.trim());
+            insertBills(inserted, bills);
+            inserted = Math.max(inserted, bills);
+
+            analyticsController.getProfitAndLoss(FROM.toString(), TO.toString());
+            long begin = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                analyticsController.getProfitAndLoss(FROM.toString(), TO.toString());
+            }
+            double aggregateMs = (System.nanoTime() - begin) / 1e6 / REPEATS;
+
+            String findAll = "skipped";
+            if (inserted <= FIND_ALL_LIMIT) {
+                begin = System.nanoTime();
+                findAllAndFilter();
+                findAll = String.format("%.1f ms", (System.nanoTime() - begin) / 1e6);
+            }
+            System.out.printf("profit-loss: %,10d bills  aggregate %8.1f ms  findAll+filter %s%n",
+                    inserted, aggregateMs, findAll);
+        }
+    }
+
+    // Bills on even indexes fall inside the queried month, odd ones a year later
+    private void insertBills(int from, int to) {
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            LocalDateTime generatedAt = FROM.plusYears(i % 2).atStartOfDay().plusMinutes(i % 43_000);
+            double total = 100 + i % 900;
+            batch.add(new Object[] {UUID.randomUUID(), Timestamp.valueOf(generatedAt), total, total});
+            if (batch.size() == 10_000 || i == to - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO bill (id, generated_at, total_amount, grand_total, tax, discount_amount) "
+                        + "VALUES (?, ?, ?, ?, 0, 0)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private double findAllAndFilter() {
+        LocalDateTime start = FROM.atStartOfDay();
+        LocalDateTime end = TO.atTime(23, 59, 59);
+        return billRepository.findAll().stream()
+                .filter(bill -> bill.getGeneratedAt() != null
+                        && !bill.getGeneratedAt().isBefore(start)
+                        && !bill.getGeneratedAt().isAfter(end))
+                .mapToDouble(Bill::getGrandTotal)
+                .sum();
+    }
+}
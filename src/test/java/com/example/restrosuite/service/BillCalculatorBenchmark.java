@@ -0,0 +1,68 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.OrderItemModifier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bills/sec and bytes allocated per bill for BillCalculator at 5, 50 and 500 lines, split
+ * over three orders like a combined table bill. Run with {@code mvn test -Pbenchmark};
+ * {@code -Dbenchmark.iterations} sets the number of timed bills per size.
+ */
+@Tag("benchmark")
+class BillCalculatorBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200_000);
+
+    @Test
+    void computeThroughputAndAllocation() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int lines : new int[] {5, 50, 500}) {
+            List<Order> orders = orders(lines);
+            int iterations = Math.max(1_000, ITERATIONS * 5 / lines);
+            long sink = 0;
+            for (int i = 0; i < iterations; i++) {
+                sink += BillCalculator.compute(orders, i % 2 == 0, 10.0).grandTotalPaise();
+            }
+
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += BillCalculator.compute(orders, i % 2 == 0, 10.0).grandTotalPaise();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            System.out.printf("bill calculator: %3d lines %10.0f bills/s %8.0f bytes/bill (checksum %d)%n",
+                    lines, iterations / seconds, (double) allocated / iterations, sink);
+        }
+    }
+
+    private static List<Order> orders(int lines) {
+        List<Order> orders = new ArrayList<>();
+        for (int o = 0; o < 3; o++) {
+            orders.add(Order.builder().items(new ArrayList<>()).build());
+        }
+        double[] taxRates = {5.0, 12.0, 18.0};
+        for (int i = 0; i < lines; i++) {
+            OrderItem item = OrderItem.builder()
+                    .menuItem(MenuItem.builder().price(100.0 + i).taxRate(taxRates[i % 3]).build())
+                    .price(100.0 + i)
+                    .quantity(1 + i % 4)
+                    .build();
+            if (i % 3 == 0) {
+                item.getModifiers().add(OrderItemModifier.builder().orderItem(item).price(25.50).build());
+            }
+            orders.get(i % 3).getItems().add(item);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.OrderItemModifier;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BillCalculatorTest {
+
+    @Test
+    void roundsTaxHalfUpPerLine() {
+        // 1020 paise at 5%: CGST and SGST are 25.5 paise each, rounded up to 26
+        BillCalculator.BillComputation one = BillCalculator.compute(
+                List.of(order(line(10.20, 1, null))), false, 0.0);
+        assertEquals(1020, one.taxablePaise());
+        assertEquals(26, one.cgstPaise());
+        assertEquals(26, one.sgstPaise());
+        assertEquals(1072, one.grandTotalPaise());
+
+        // Rounded per line, not on the total (which would give 51)
+        BillCalculator.BillComputation two = BillCalculator.compute(
+                List.of(order(line(10.20, 1, null), line(10.20, 1, null))), false, 0.0);
+        assertEquals(52, two.cgstPaise());
+        assertEquals(52, two.sgstPaise());
+    }
+
+    @Test
+    void convertsRupeesToExactPaise() {
+        assertEquals(30, BillCalculator.toPaise(0.1 + 0.2));
+        assertEquals(1.1, BillCalculator.toRupees(110));
+    }
+
+    @Test
+    void splitsIntraStateTaxIntoCgstAndSgst() {
+        BillCalculator.BillComputation bill = BillCalculator.compute(
+                List.of(order(line(250.0, 2, 5.0), line(300.0, 1, 18.0))), false, 0.0);
+        // 500.00 at 5% and 300.00 at 18%, half of each rate to CGST and SGST
+        assertEquals(80000, bill.taxablePaise());
+        assertEquals(1250 + 2700, bill.cgstPaise());
+        assertEquals(1250 + 2700, bill.sgstPaise());
+        assertEquals(0, bill.igstPaise());
+        assertEquals(80000 + 7900, bill.grandTotalPaise());
+    }
+
+    @Test
+    void chargesInterStateTaxAsIgst() {
+        BillCalculator.BillComputation bill = BillCalculator.compute(
+                List.of(order(line(10.10, 1, null), line(300.0, 3, 18.0))), true, 0.0);
+        // 1010 paise at 5% is 50.5 paise, rounded up to 51; 900.00 at 18% is 162.00
+        assertEquals(0, bill.cgstPaise());
+        assertEquals(0, bill.sgstPaise());
+        assertEquals(51 + 16200, bill.igstPaise());
+        assertEquals(162.51, bill.tax());
+    }
+
+    @Test
+    void multipliesModifiersByQuantity() {
+        OrderItem item = line(200.0, 3, null);
+        item.getModifiers().add(modifier(item, 30.0));
+        item.getModifiers().add(modifier(item, 20.50));
+
+        BillCalculator.BillComputation bill = BillCalculator.compute(List.of(order(item)), false, 0.0);
+        // (200.00 + 30.00 + 20.50) x 3 = 751.50; 2.5% of it is 18.7875, rounded to 18.79
+        assertEquals(75150, bill.taxablePaise());
+        assertEquals(1879, bill.cgstPaise());
+        assertEquals(1879, bill.sgstPaise());
+    }
+
+    @Test
+    void takesDiscountOffGrandTotal() {
+        BillCalculator.BillComputation bill = BillCalculator.compute(
+                List.of(order(line(100.0, 1, null))), false, 12.34);
+        assertEquals(1234, bill.discountPaise());
+        assertEquals(10000 + 500 - 1234, bill.grandTotalPaise());
+        assertEquals(92.66, bill.grandTotal());
+    }
+
+    @Test
+    void combinedBillMatchesSingleOrderWithSameLines() {
+        OrderItem withModifier = line(180.0, 2, 12.0);
+        withModifier.getModifiers().add(modifier(withModifier, 15.0));
+
+        Order first = order(line(250.0, 1, 5.0), withModifier);
+        Order second = order(line(10.20, 3, null), line(300.0, 1, 18.0));
+        Order single = order(first.getItems().get(0), first.getItems().get(1),
+                second.getItems().get(0), second.getItems().get(1));
+
+        for (boolean interState : new boolean[] {false, true}) {
+            assertEquals(BillCalculator.compute(List.of(single), interState, 25.0),
+                    BillCalculator.compute(List.of(first, second), interState, 25.0));
+        }
+    }
+
+    @Test
+    void randomBillsAgreeAcrossPathsAndWithReference() {
+        Random random = new Random(16);
+        double[] taxRates = {0, 5.0, 12.0, 18.0, 28.0};
+        for (int trial = 0; trial < 1000; trial++) {
+            List<OrderItem> lines = new ArrayList<>();
+            int lineCount = 1 + random.nextInt(12);
+            for (int i = 0; i < lineCount; i++) {
+                double rate = taxRates[random.nextInt(taxRates.length)];
+                OrderItem item = line(random.nextInt(100_000) / 100.0, 1 + random.nextInt(5), rate == 0 ? null : rate);
+                for (int m = random.nextInt(3); m > 0; m--) {
+                    item.getModifiers().add(modifier(item, random.nextInt(5_000) / 100.0));
+                }
+                lines.add(item);
+            }
+            boolean interState = random.nextBoolean();
+            double discount = random.nextInt(10_000) / 100.0;
+
+            // A combined table bill spreads the same lines over several orders
+            List<Order> split = new ArrayList<>();
+            for (int i = 0; i < lines.size(); ) {
+                int take = 1 + random.nextInt(lines.size() - i);
+                split.add(order(lines.subList(i, i + take).toArray(new OrderItem[0])));
+                i += take;
+            }
+            BillCalculator.BillComputation single = BillCalculator.compute(
+                    List.of(order(lines.toArray(new OrderItem[0]))), interState, discount);
+            assertEquals(single, BillCalculator.compute(split, interState, discount));
+            assertEquals(reference(lines, interState, discount), single);
+        }
+    }
+
+    // Straightforward BigDecimal computation of the same rules: tax rounded half-up per line
+    private static BillCalculator.BillComputation reference(List<OrderItem> lines, boolean interState,
+                                                            double discount) {
+        BigDecimal hundred = BigDecimal.valueOf(100);
+        long taxable = 0;
+        long cgst = 0;
+        long sgst = 0;
+        long igst = 0;
+        for (OrderItem item : lines) {
+            BigDecimal unit = BigDecimal.valueOf(item.getPrice());
+            for (OrderItemModifier modifier : item.getModifiers()) {
+                unit = unit.add(BigDecimal.valueOf(modifier.getPrice()));
+            }
+            BigDecimal amountPaise = unit.multiply(hundred).multiply(BigDecimal.valueOf(item.getQuantity()));
+            Double taxRate = item.getMenuItem().getTaxRate();
+            BigDecimal rate = BigDecimal.valueOf(taxRate != null ? taxRate : 5.0).divide(hundred);
+            taxable += amountPaise.longValueExact();
+            if (interState) {
+                igst += amountPaise.multiply(rate).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            } else {
+                long half = amountPaise.multiply(rate).divide(BigDecimal.valueOf(2))
+                        .setScale(0, RoundingMode.HALF_UP).longValueExact();
+                cgst += half;
+                sgst += half;
+            }
+        }
+        return new BillCalculator.BillComputation(taxable, cgst, sgst, igst,
+                BigDecimal.valueOf(discount).multiply(hundred).longValueExact());
+    }
+
+    private static Order order(OrderItem... items) {
+        return Order.builder().items(new ArrayList<>(List.of(items))).build();
+    }
+
+    private static OrderItem line(double price, int quantity, Double taxRate) {
+        return OrderItem.builder()
+                .menuItem(MenuItem.builder().price(price).taxRate(taxRate).build())
+                .price(price)
+                .quantity(quantity)
+                .build();
+    }
+
+    private static OrderItemModifier modifier(OrderItem item, double price) {
+        return OrderItemModifier.builder().orderItem(item).price(price).build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Two bus nodes, each with its own listener connection, against one real Postgres.
+ * Set CLUSTER_BUS_TEST_DB_URL (plus CLUSTER_BUS_TEST_DB_USER / CLUSTER_BUS_TEST_DB_PASS) to run it.
+ */
+@EnabledIfEnvironmentVariable(named = "CLUSTER_BUS_TEST_DB_URL", matches = ".+")
+class ClusterEventBusTest {
+
+    private final String channel = "restrosuite_test_" + UUID.randomUUID().toString().replace("-", "");
+    private final List<ClusterEventBus> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ClusterEventBus::shutdown);
+    }
+
+    @Test
+    void eventsReachTheOtherNodeOnce() {
+        OrderEventPublisher publisherA = mock(OrderEventPublisher.class);
+        OrderEventPublisher publisherB = mock(OrderEventPublisher.class);
+        TableSessionRegistry tablesB = mock(TableSessionRegistry.class);
+        ClusterEventBus nodeA = start(publisherA, mock(TableSessionRegistry.class));
+        ClusterEventBus nodeB = start(publisherB, tablesB);
+
+        OrderEvent event = event(1);
+        nodeA.relay(event);
+        // A retried relay of the same sequence is delivered only once
+        nodeA.relay(event);
+
+        ArgumentCaptor<OrderEvent> delivered = ArgumentCaptor.forClass(OrderEvent.class);
+        verify(publisherB, timeout(5000)).deliver(delivered.capture());
+        verify(publisherB, after(500)).deliver(delivered.capture());
+        assertEquals(event.getSequence(), delivered.getValue().getSequence());
+        assertEquals(event.getOrderId(), delivered.getValue().getOrderId());
+        assertEquals(Set.of("mains"), delivered.getValue().getStations());
+        verify(tablesB).refreshTable(event.getTableId());
+        verify(publisherA, never()).deliver(delivered.capture());
+
+        nodeB.relay(event(2));
+        verify(publisherA, timeout(5000)).deliver(delivered.capture());
+    }
+
+    @Test
+    void eventRedispatchedByAnotherNodeIsNotDeliveredAgain() {
+        OrderEventPublisher publisherA = mock(OrderEventPublisher.class);
+        OrderEventPublisher publisherB = mock(OrderEventPublisher.class);
+        LiveSalesCounters countersA = mock(LiveSalesCounters.class);
+        LiveSalesCounters countersB = mock(LiveSalesCounters.class);
+        ClusterEventBus nodeA = start(publisherA, mock(TableSessionRegistry.class), countersA);
+        ClusterEventBus nodeB = start(publisherB, mock(TableSessionRegistry.class), countersB);
+
+        // A dispatches the event; B's dispatcher later picks up the same outbox row and relays it too
+        OrderEvent event = event(3);
+        nodeA.relay(event);
+        verify(publisherB, timeout(5000)).deliver(any());
+        nodeB.relay(event);
+
+        // A already delivered it locally, and B does not count it twice
+        nodeB.relay(event(4));
+        verify(publisherA, timeout(5000)).deliver(any());
+        ArgumentCaptor<OrderEvent> delivered = ArgumentCaptor.forClass(OrderEvent.class);
+        verify(publisherA, after(500)).deliver(delivered.capture());
+        assertEquals(4, delivered.getValue().getSequence());
+        verify(publisherB, after(500)).deliver(any());
+        verify(countersB).consume(any());
+        verify(countersA).consume(any());
+    }
+
+    private ClusterEventBus start(OrderEventPublisher publisher, TableSessionRegistry tables) {
+        return start(publisher, tables, mock(LiveSalesCounters.class));
+    }
+
+    private ClusterEventBus start(OrderEventPublisher publisher, TableSessionRegistry tables,
+                                  LiveSalesCounters liveSalesCounters) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getenv("CLUSTER_BUS_TEST_DB_URL"),
+                System.getenv("CLUSTER_BUS_TEST_DB_USER"), System.getenv("CLUSTER_BUS_TEST_DB_PASS"));
+        ClusterEventBus bus = new ClusterEventBus();
+        ReflectionTestUtils.setField(bus, "dataSource", dataSource);
+        ReflectionTestUtils.setField(bus, "jdbcTemplate", new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(bus, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(bus, "orderEventPublisher", publisher);
+        ReflectionTestUtils.setField(bus, "tableSessionRegistry", tables);
+        ReflectionTestUtils.setField(bus, "liveSalesCounters", liveSalesCounters);
+        ReflectionTestUtils.setField(bus, "analyticsCache", mock(AnalyticsCache.class));
+        ReflectionTestUtils.setField(bus, "channel", channel);
+        ReflectionTestUtils.setField(bus, "flushIntervalMs", 20L);
+        bus.onApplicationEvent(mock(ApplicationReadyEvent.class));
+        nodes.add(bus);
+        // Give the listener time to LISTEN before anything is relayed
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return bus;
+    }
+
+    private static OrderEvent event(long sequence) {
+        return OrderEvent.builder()
+                .sequence(sequence)
+                .type(OrderEvent.STATUS_CHANGED)
+                .orderId(UUID.randomUUID())
+                .tableId(UUID.randomUUID())
+                .status("IN_PROGRESS")
+                .previousStatus("CREATED")
+                .totalAmount(520.0)
+                .occurredAt(LocalDateTime.now())
+                .stations(Set.of("mains"))
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.TableEntity;
+import com.example.restrosuite.repository.MenuItemRepository;
+import com.example.restrosuite.repository.OrderRepository;
+import com.example.restrosuite.repository.TableRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CustomerOrderServiceConcurrencyTest extends IntegrationTest {
+
+    private static final int SUBMISSIONS = 50;
+
+    @Autowired
+    private CustomerOrderService customerOrderService;
+
+    @Autowired
+    private MenuCatalogService menuCatalogService;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private TableRepository tableRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void parallelSubmissionsToOneTableLandOnOneOrder() throws Exception {
+        MenuItem tea = menuItemRepository.save(MenuItem.builder()
+                .name("Masala Tea").category("Beverages").price(20.0).available(true).build());
+        MenuItem samosa = menuItemRepository.save(MenuItem.builder()
+                .name("Samosa").category("Snacks").price(15.0).available(true).build());
+        menuCatalogService.refresh();
+        UUID tableId = tableRepository.save(TableEntity.builder().tableNumber("C" + UUID.randomUUID()).build()).getId();
+
+        // Every submission adds one tea and as many samosas as its index mod 3
+        ExecutorService pool = Executors.newFixedThreadPool(SUBMISSIONS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> submissions = new ArrayList<>();
+        int expectedSamosas = 0;
+        for (int i = 0; i < SUBMISSIONS; i++) {
+            List<Map<String, Object>> items = new ArrayList<>();
+            items.add(Map.of("menuItemId", tea.getId().toString(), "quantity", 1));
+            if (i % 3 > 0) {
+                items.add(Map.of("menuItemId", samosa.getId().toString(), "quantity", i % 3));
+                expectedSamosas += i % 3;
+            }
+            submissions.add(pool.submit(() -> {
+                start.await();
+                return customerOrderService.placeOrder(tableId, items, null);
+            }));
+        }
+        start.countDown();
+        for (Future<?> submission : submissions) {
+            submission.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int samosas = expectedSamosas;
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<Order> active = orderRepository.findActiveOrdersByTableId(tableId);
+            assertEquals(1, active.size());
+            Order order = active.get(0);
+
+            int teaQuantity = 0;
+            int samosaQuantity = 0;
+            for (OrderItem item : order.getItems()) {
+                if (item.getMenuItem().getId().equals(tea.getId())) {
+                    teaQuantity += item.getQuantity();
+                } else if (item.getMenuItem().getId().equals(samosa.getId())) {
+                    samosaQuantity += item.getQuantity();
+                }
+            }
+            assertEquals(SUBMISSIONS, teaQuantity);
+            assertEquals(samosas, samosaQuantity);
+            assertEquals(SUBMISSIONS * 20.0 + samosas * 15.0, order.getTotalAmount(), 0.001);
+        });
+    }
+}
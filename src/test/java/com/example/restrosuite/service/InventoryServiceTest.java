@@ -0,0 +1,188 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.Ingredient;
+import com.example.restrosuite.entity.MenuIngredient;
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.StockMovement;
+import com.example.restrosuite.repository.IngredientRepository;
+import com.example.restrosuite.repository.MenuIngredientRepository;
+import com.example.restrosuite.repository.MenuItemRepository;
+import com.example.restrosuite.repository.StockMovementRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryServiceTest extends IntegrationTest {
+
+    private static final int WRITERS = 16;
+    private static final int MOVEMENTS_PER_WRITER = 25;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private MenuIngredientRepository menuIngredientRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentMovementsKeepProjectionEqualToLedger() throws Exception {
+        UUID id = ingredient("Onion").getId();
+        inventoryService.recordMovement(id, StockMovement.ADJUSTMENT, 1000.0, null);
+
+        // Even writers consume 1.5, odd writers restock 2.0; both are exact in binary
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            boolean sale = w % 2 == 0;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < MOVEMENTS_PER_WRITER; i++) {
+                    if (sale) {
+                        inventoryService.recordMovement(id, StockMovement.SALE, -1.5, UUID.randomUUID());
+                    } else {
+                        inventoryService.recordMovement(id, StockMovement.PURCHASE, 2.0, UUID.randomUUID());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        double expected = 1000.0 + (WRITERS / 2) * MOVEMENTS_PER_WRITER * (2.0 - 1.5);
+        assertEquals(expected, stock(id));
+        assertEquals(expected, ledgerSum(id));
+        assertEquals(1 + WRITERS * MOVEMENTS_PER_WRITER, stockMovementRepository.findByIngredientIdOrderByCreatedAtDesc(id).size());
+    }
+
+    @Test
+    void billBatchRecordsSaleMovementsPerBillAndIngredient() {
+        Ingredient paneer = ingredient("Paneer");
+        Ingredient butter = ingredient("Butter");
+        inventoryService.recordMovement(paneer.getId(), StockMovement.ADJUSTMENT, 5000.0, null);
+        inventoryService.recordMovement(butter.getId(), StockMovement.ADJUSTMENT, 1000.0, null);
+
+        MenuItem tikka = menu("Paneer Tikka");
+        MenuItem makhani = menu("Paneer Makhani");
+        link(tikka, paneer, 200.0);
+        link(makhani, paneer, 150.0);
+        link(makhani, butter, 25.0);
+        inventoryService.invalidateRecipeIndex();
+
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        inventoryService.deductForBills(Map.of(
+                first, List.of(OrderItem.builder().menuItem(tikka).quantity(2).build(),
+                        OrderItem.builder().menuItem(makhani).quantity(3).build()),
+                second, List.of(OrderItem.builder().menuItem(tikka).quantity(1).build())));
+
+        assertEquals(2, stockMovementRepository.findByReferenceId(first).size());
+        List<StockMovement> secondMovements = stockMovementRepository.findByReferenceId(second);
+        assertEquals(1, secondMovements.size());
+        assertEquals(-200.0, secondMovements.get(0).getQuantity());
+        assertEquals(5000.0 - 3 * 200.0 - 3 * 150.0, stock(paneer.getId()));
+        assertEquals(1000.0 - 3 * 25.0, stock(butter.getId()));
+        assertEquals(stock(paneer.getId()), ledgerSum(paneer.getId()));
+        assertEquals(stock(butter.getId()), ledgerSum(butter.getId()));
+    }
+
+    @Test
+    void newIngredientBooksOpeningStockOnTheLedger() {
+        Ingredient rice = inventoryService.addIngredient(Ingredient.builder()
+                .name("Rice " + UUID.randomUUID()).unit("g").quantity(2500.0).threshold(0).build());
+
+        assertEquals(2500.0, rice.getQuantity());
+        assertEquals(2500.0, stock(rice.getId()));
+        List<StockMovement> movements = stockMovementRepository.findByIngredientIdOrderByCreatedAtDesc(rice.getId());
+        assertEquals(1, movements.size());
+        assertEquals(StockMovement.ADJUSTMENT, movements.get(0).getMovementType());
+    }
+
+    @Test
+    void stockCountWaitsForInFlightMovement() throws Exception {
+        String name = "Flour " + UUID.randomUUID();
+        UUID id = inventoryService.addIngredient(Ingredient.builder()
+                .name(name).unit("g").quantity(100.0).threshold(0).build()).getId();
+
+        // A sale is written but not yet committed when the stock count comes in
+        CountDownLatch moved = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> sale = pool.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            inventoryService.recordMovement(id, StockMovement.SALE, -30.0, UUID.randomUUID());
+            moved.countDown();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(moved.await(5, TimeUnit.SECONDS));
+
+        // The count waits for the sale and books only the remaining difference
+        Ingredient counted = inventoryService.updateIngredient(id, Ingredient.builder()
+                .name(name).unit("g").quantity(50.0).threshold(10).build());
+        sale.get(5, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(50.0, counted.getQuantity());
+        assertEquals(50.0, stock(id));
+        assertEquals(50.0, ledgerSum(id));
+    }
+
+    private Ingredient ingredient(String name) {
+        return ingredientRepository.save(Ingredient.builder().name(name + " " + UUID.randomUUID()).unit("g").threshold(0).build());
+    }
+
+    private MenuItem menu(String name) {
+        return menuItemRepository.save(MenuItem.builder().name(name).category("Mains").price(250.0).available(true).build());
+    }
+
+    private void link(MenuItem menuItem, Ingredient ingredient, double quantity) {
+        menuIngredientRepository.save(MenuIngredient.builder()
+                .menuItem(menuItem).ingredient(ingredient).quantityRequired(quantity).build());
+    }
+
+    private double stock(UUID ingredientId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM ingredient WHERE id = ?", Double.class, ingredientId);
+    }
+
+    private double ledgerSum(UUID ingredientId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_movement WHERE ingredient_id = ?", Double.class, ingredientId);
+    }
+}
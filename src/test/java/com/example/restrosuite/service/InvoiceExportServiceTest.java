@@ -0,0 +1,72 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.Bill;
+import com.example.restrosuite.repository.BillRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fixtures are dated in 2034 so the seed data and other tests' bills stay outside the exported range.
+ */
+class InvoiceExportServiceTest extends IntegrationTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2034, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2034, 2, 1, 0, 0);
+
+    @Autowired
+    private InvoiceExportService invoiceExportService;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Test
+    void pagesThroughRangeAndSkipsCombinedOrderRows() throws Exception {
+        List<UUID> expected = new ArrayList<>();
+        expected.add(bill(FROM, "PAID"));
+        bill(FROM.plusHours(1), "COMBINED");
+        expected.add(bill(FROM.plusHours(2), null));
+        bill(FROM.plusHours(3), "COMBINED");
+        expected.add(bill(FROM.plusHours(4), "COMBINED_BILL"));
+        expected.add(bill(FROM.plusHours(5), "PENDING"));
+        bill(TO, "PAID");
+
+        // Small pages so the keyset cursor has to cross the skipped rows
+        Object pageSize = ReflectionTestUtils.getField(invoiceExportService, "pageSize");
+        ReflectionTestUtils.setField(invoiceExportService, "pageSize", 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written;
+        try {
+            written = invoiceExportService.writeZip(FROM, TO, InvoiceExportService.FORMAT_TEXT, out);
+        } finally {
+            ReflectionTestUtils.setField(invoiceExportService, "pageSize", pageSize);
+        }
+
+        List<UUID> exported = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                String name = entry.getName();
+                exported.add(UUID.fromString(name.substring(name.length() - 40, name.length() - 4)));
+            }
+        }
+        assertEquals(expected.size(), written);
+        assertEquals(expected, exported);
+    }
+
+    private UUID bill(LocalDateTime generatedAt, String paymentStatus) {
+        return billRepository.save(Bill.builder().generatedAt(generatedAt).totalAmount(100.0).grandTotal(105.0)
+                .paymentStatus(paymentStatus).build()).getId();
+    }
+}
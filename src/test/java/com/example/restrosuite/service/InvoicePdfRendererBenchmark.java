@@ -0,0 +1,71 @@
+package com.example.restrosuite.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Invoices/sec and bytes allocated per invoice for 5-, 50- and 500-line bills on the bounded
+ * render pool. Run with {@code mvn test -Pbenchmark}; {@code -Dbenchmark.threads} sets the
+ * render threads (default: available processors) and {@code -Dbenchmark.invoices} the number of
+ * timed 5-line invoices (scaled down for longer bills).
+ */
+@Tag("benchmark")
+class InvoicePdfRendererBenchmark {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors());
+    private static final int INVOICES = Integer.getInteger("benchmark.invoices", 5_000);
+
+    @Test
+    void renderThroughputAndAllocation() throws Exception {
+        InvoicePdfRenderer renderer = new InvoicePdfRenderer(new SimpleMeterRegistry(), THREADS, 4 * THREADS, 60_000);
+        ExecutorService callers = Executors.newFixedThreadPool(2 * THREADS);
+        try {
+            for (int lines : new int[] {5, 50, 500}) {
+                InvoicePdfRenderer.InvoiceDocument invoice = InvoicePdfRendererTest.invoice(lines);
+                int count = Math.max(50, INVOICES * 5 / lines);
+                run(renderer, callers, invoice, count);
+
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                run(renderer, callers, invoice, count);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long allocated = allocatedBytes() - allocatedBefore;
+
+                System.out.printf("invoice pdf: %3d lines, %d threads %8.0f invoices/s %10.0f bytes/invoice%n",
+                        lines, THREADS, count / seconds, (double) allocated / count);
+            }
+        } finally {
+            callers.shutdownNow();
+            renderer.shutdown();
+        }
+    }
+
+    private static void run(InvoicePdfRenderer renderer, ExecutorService callers,
+                            InvoicePdfRenderer.InvoiceDocument invoice, int count) throws Exception {
+        List<Future<byte[]>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(callers.submit(() -> renderer.render(invoice)));
+        }
+        for (Future<byte[]> result : results) {
+            result.get();
+        }
+    }
+
+    // Allocation across every live thread, so work done on the render pool is included
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(allocated, 0);
+        }
+        return total;
+    }
+}
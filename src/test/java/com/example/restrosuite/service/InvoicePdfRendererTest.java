@@ -0,0 +1,83 @@
+package com.example.restrosuite.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoicePdfRendererTest {
+
+    private static final int THREADS = 1;
+    private static final int QUEUE = 1;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InvoicePdfRenderer renderer = new InvoicePdfRenderer(meterRegistry, THREADS, QUEUE, 100);
+
+    @AfterEach
+    void shutdown() {
+        renderer.shutdown();
+    }
+
+    @Test
+    void rendersInvoiceAcrossPages() throws Exception {
+        byte[] pdf = renderer.render(invoice(60));
+
+        try (PDDocument doc = PDDocument.load(pdf)) {
+            assertTrue(doc.getNumberOfPages() > 1);
+            String text = new PDFTextStripper().getText(doc);
+            assertTrue(text.contains("RESTAURANT INVOICE"));
+            assertTrue(text.contains("Item 59 (HSN: 996331) - 2 x Rs159.00 = Rs318.00"));
+            assertTrue(text.contains("CGST: Rs12.25"));
+            assertTrue(text.contains("Grand Total: Rs514.50"));
+        }
+        assertEquals(1, meterRegistry.get("invoice.pdf.render").timer().count());
+    }
+
+    @Test
+    void rejectsWhenEveryRenderSlotIsTaken() throws Exception {
+        Semaphore slots = (Semaphore) ReflectionTestUtils.getField(renderer, "slots");
+        int taken = slots.drainPermits();
+        assertEquals(THREADS + QUEUE, taken);
+        assertEquals(THREADS + QUEUE, meterRegistry.get("invoice.pdf.render.in_flight").gauge().value());
+
+        assertThrows(RejectedExecutionException.class, () -> renderer.render(invoice(5)));
+        assertEquals(1.0, meterRegistry.get("invoice.pdf.render.rejected").counter().count());
+
+        // Capacity comes back once the in-flight renders finish
+        slots.release(taken);
+        assertTrue(renderer.render(invoice(5)).length > 0);
+        assertEquals(0.0, meterRegistry.get("invoice.pdf.render.in_flight").gauge().value());
+    }
+
+    @Test
+    void formatsMoneyWithTwoDecimals() {
+        assertEquals("1234.50", InvoicePdfRenderer.appendMoney(new StringBuilder(), 1234.5).toString());
+        assertEquals("0.07", InvoicePdfRenderer.appendMoney(new StringBuilder(), 0.07).toString());
+        assertEquals("-3.50", InvoicePdfRenderer.appendMoney(new StringBuilder(), -3.5).toString());
+        assertEquals("10.30", InvoicePdfRenderer.appendMoney(new StringBuilder(), 0.1 + 10.2).toString());
+    }
+
+    static InvoicePdfRenderer.InvoiceDocument invoice(int lineCount) {
+        List<InvoicePdfRenderer.Line> lines = new ArrayList<>();
+        for (int i = 0; i < lineCount; i++) {
+            lines.add(new InvoicePdfRenderer.Line("Item " + i, "996331", 2, 100.0 + i, 2 * (100.0 + i)));
+        }
+        return new InvoicePdfRenderer.InvoiceDocument(UUID.randomUUID(), 1, UUID.randomUUID(), "T7",
+                LocalDateTime.now(), "29ABCDE1234F1Z5", null, lines, 490.0, 0, false,
+                12.25, 12.25, null, 24.5, 514.5);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.MenuModifier;
+import com.example.restrosuite.entity.ModifierGroup;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MenuCatalogServiceTest extends IntegrationTest {
+
+    @Autowired
+    private MenuCatalogService menuCatalogService;
+
+    @Autowired
+    private MenuService menuService;
+
+    @Autowired
+    private ModifierService modifierService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void menuItemWritesRefreshSnapshot() {
+        long version = menuCatalogService.current().getVersion();
+
+        MenuItem item = menuService.createMenuItem(MenuItem.builder()
+                .name("Paneer Tikka").category("Starters").price(220.0).build());
+        MenuCatalogService.Snapshot created = menuCatalogService.current();
+        assertTrue(created.getVersion() > version);
+        assertEquals(220.0, created.getMenuItems().get(item.getId()).getPrice());
+
+        menuService.updateMenuItem(item.getId(), MenuItem.builder()
+                .name("Paneer Tikka").category("Starters").price(240.0).available(true).build());
+        assertEquals(240.0, menuCatalogService.findMenuItem(item.getId()).orElseThrow().getPrice());
+
+        menuService.toggleAvailability(item.getId());
+        assertFalse(menuCatalogService.findMenuItem(item.getId()).orElseThrow().isAvailable());
+
+        menuService.deleteMenuItemsBulk(List.of(item.getId()));
+        assertTrue(menuCatalogService.findMenuItem(item.getId()).isEmpty());
+    }
+
+    @Test
+    void modifierWritesRefreshSnapshot() {
+        ModifierGroup group = modifierService.createModifierGroup(ModifierGroup.builder()
+                .name("Size").isRequired(true).allowMultiple(false).minSelection(1).isActive(true).build());
+        assertEquals("Size", menuCatalogService.findModifierGroup(group.getId()).orElseThrow().getName());
+
+        MenuModifier large = modifierService.createMenuModifier(MenuModifier.builder()
+                .modifierGroup(group).name("Large").price(40.0).isActive(true).displayOrder(1).build());
+        MenuModifier cached = menuCatalogService.findModifier(large.getId()).orElseThrow();
+        assertEquals(40.0, cached.getPrice());
+        assertEquals(group.getId(), cached.getModifierGroup().getId());
+
+        modifierService.updateMenuModifier(large.getId(), MenuModifier.builder()
+                .name("Large").price(55.0).isActive(false).displayOrder(1).build());
+        MenuModifier updated = menuCatalogService.findModifier(large.getId()).orElseThrow();
+        assertEquals(55.0, updated.getPrice());
+        assertFalse(updated.getIsActive());
+
+        modifierService.deleteMenuModifier(large.getId());
+        assertTrue(menuCatalogService.findModifier(large.getId()).isEmpty());
+    }
+
+    @Test
+    void writeInsideTransactionIsPublishedOnlyAfterCommit() {
+        UUID id = new TransactionTemplate(transactionManager).execute(status -> {
+            MenuItem item = menuService.createMenuItem(MenuItem.builder()
+                    .name("Filter Coffee").category("Beverages").price(35.0).build());
+            assertFalse(menuCatalogService.current().getMenuItems().containsKey(item.getId()));
+            return item.getId();
+        });
+        assertTrue(menuCatalogService.current().getMenuItems().containsKey(id));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.config.WebSocketOutboundQueues;
+import com.example.restrosuite.dto.OrderEvent;
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.MenuModifier;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.OrderItemModifier;
+import com.example.restrosuite.entity.TableEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class OrderEventPublisherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final OrderEventPublisher publisher = new OrderEventPublisher();
+
+    @Test
+    void createdEventCarriesFlatLinesOnly() throws Exception {
+        Order order = order(line("Dal Makhani", 260.0, 2, "Extra Butter"), line("Butter Naan", 60.0, 4));
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(publisher.created(order)));
+
+        assertEquals(OrderEvent.CREATED, json.get("type").asText());
+        assertEquals(order.getId().toString(), json.get("orderId").asText());
+        assertEquals(order.getTable().getId().toString(), json.get("tableId").asText());
+        assertEquals(2, json.get("lines").size());
+        JsonNode first = json.get("lines").get(0);
+        assertEquals("Dal Makhani", first.get("name").asText());
+        assertEquals(2, first.get("quantity").asInt());
+        assertEquals("Extra Butter", first.get("modifiers").get(0).asText());
+        assertFalse(json.get("lines").get(1).has("modifiers"));
+
+        // No entity graph and no fields that do not apply to this event type
+        assertFalse(json.has("items"));
+        assertFalse(json.has("table"));
+        assertFalse(first.has("menuItem"));
+        assertFalse(json.has("previousStatus"));
+        assertFalse(json.has("billId"));
+    }
+
+    @Test
+    void statusAndBilledEventsCarryNoLines() throws Exception {
+        Order order = order(line("Dal Makhani", 260.0, 2));
+        order.setStatus("COMPLETED");
+        UUID billId = UUID.randomUUID();
+
+        JsonNode status = objectMapper.readTree(objectMapper.writeValueAsString(
+                publisher.statusChanged(order, "IN_PROGRESS")));
+        assertEquals(OrderEvent.STATUS_CHANGED, status.get("type").asText());
+        assertEquals("COMPLETED", status.get("status").asText());
+        assertEquals("IN_PROGRESS", status.get("previousStatus").asText());
+        assertFalse(status.has("lines"));
+
+        JsonNode billed = objectMapper.readTree(objectMapper.writeValueAsString(publisher.billed(order, billId)));
+        assertEquals(OrderEvent.BILLED, billed.get("type").asText());
+        assertEquals(billId.toString(), billed.get("billId").asText());
+        assertFalse(billed.has("lines"));
+    }
+
+    @Test
+    void publishOnlyAppendsToOutbox() {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        OutboxService outboxService = mock(OutboxService.class);
+        ReflectionTestUtils.setField(publisher, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(publisher, "outboxService", outboxService);
+        OrderEvent event = publisher.created(order(line("Dal Makhani", 260.0, 1)));
+
+        publisher.publish(event);
+
+        verify(outboxService).append(event);
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void consumeSerializesOnceForEveryTopicAndRelays() throws Exception {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        ClusterEventBus bus = mock(ClusterEventBus.class);
+        ObjectProvider<ClusterEventBus> busProvider = mock(ObjectProvider.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<ClusterEventBus>>getArgument(0).accept(bus);
+            return null;
+        }).when(busProvider).ifAvailable(any());
+        ReflectionTestUtils.setField(publisher, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(publisher, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(publisher, "clusterEventBus", busProvider);
+        Order order = order(line("Dal Makhani", 260.0, 1));
+        OrderEvent event = publisher.statusChanged(order, "CREATED");
+        event.setSequence(42);
+
+        publisher.consume(List.of(event));
+
+        ArgumentCaptor<Message<?>> orders = messageCaptor();
+        ArgumentCaptor<Message<?>> table = messageCaptor();
+        verify(messagingTemplate).send(eq(OrderEventPublisher.ORDERS_TOPIC), orders.capture());
+        verify(messagingTemplate).send(eq(OrderEventPublisher.tableTopic(order.getTable().getId())), table.capture());
+        assertSame(orders.getValue().getPayload(), table.getValue().getPayload());
+        JsonNode json = objectMapper.readTree((byte[]) orders.getValue().getPayload());
+        assertEquals(42, json.get("sequence").asLong());
+        assertEquals("CREATED", json.get("previousStatus").asText());
+        assertEquals("status-" + order.getId(), SimpMessageHeaderAccessor.wrap(orders.getValue())
+                .getFirstNativeHeader(WebSocketOutboundQueues.CONFLATION_KEY_HEADER));
+        verify(bus).relay(event);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<Message<?>> messageCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(Message.class);
+    }
+
+    private static Order order(OrderItem... items) {
+        Order order = Order.builder()
+                .id(UUID.randomUUID())
+                .table(TableEntity.builder().id(UUID.randomUUID()).tableNumber("T4").build())
+                .status("CREATED")
+                .items(new ArrayList<>(List.of(items)))
+                .build();
+        double total = 0;
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            total += item.getTotalPrice();
+        }
+        order.setTotalAmount(total);
+        return order;
+    }
+
+    private static OrderItem line(String name, double price, int quantity, String... modifierNames) {
+        OrderItem item = OrderItem.builder()
+                .id(UUID.randomUUID())
+                .menuItem(MenuItem.builder().id(UUID.randomUUID()).name(name).price(price).available(true).build())
+                .price(price)
+                .quantity(quantity)
+                .build();
+        for (String modifierName : modifierNames) {
+            item.getModifiers().add(OrderItemModifier.builder()
+                    .orderItem(item)
+                    .menuModifier(MenuModifier.builder().id(UUID.randomUUID()).name(modifierName).price(30.0).build())
+                    .price(30.0)
+                    .build());
+        }
+        return item;
+    }
+}
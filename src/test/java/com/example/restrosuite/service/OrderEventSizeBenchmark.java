@@ -0,0 +1,93 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.MenuModifier;
+import com.example.restrosuite.entity.Order;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.OrderItemModifier;
+import com.example.restrosuite.entity.Outlet;
+import com.example.restrosuite.entity.TableEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * Bytes/event and serialization time of the full Order entity versus the delta events, for a
+ * 40-item order. Run with {@code mvn test -Pbenchmark}; {@code -Dbenchmark.iterations} sets the
+ * number of timed serializations.
+ */
+@Tag("benchmark")
+class OrderEventSizeBenchmark {
+
+    private static final int ITEMS = 40;
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 20_000);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final OrderEventPublisher publisher = new OrderEventPublisher();
+
+    @Test
+    void fullEntityVersusDelta() throws Exception {
+        Order order = fortyItemOrder();
+
+        measure("full Order entity", order);
+        measure("CREATED delta", publisher.created(order));
+        measure("ITEMS_ADDED delta (1 line)", publisher.itemsAdded(order, order.getItems().subList(0, 1)));
+        measure("STATUS_CHANGED delta", publisher.statusChanged(order, "CREATED"));
+    }
+
+    private void measure(String label, Object payload) throws Exception {
+        int bytes = objectMapper.writeValueAsBytes(payload).length;
+        for (int i = 0; i < ITERATIONS; i++) {
+            objectMapper.writeValueAsBytes(payload);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            objectMapper.writeValueAsBytes(payload);
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / ITERATIONS;
+        System.out.printf("%-28s %7d bytes/event %8.2f us/serialization%n", label, bytes, micros);
+    }
+
+    private static Order fortyItemOrder() {
+        Outlet outlet = Outlet.builder().id(UUID.randomUUID()).name("Koramangala").code("BLR-01")
+                .address("80 Feet Road").city("Bengaluru").state("Karnataka").pincode("560034").build();
+        Order order = Order.builder()
+                .id(UUID.randomUUID())
+                .table(TableEntity.builder().id(UUID.randomUUID()).tableNumber("T12").capacity(6)
+                        .location("Floor 1").outlet(outlet).build())
+                .outlet(outlet)
+                .status("IN_PROGRESS")
+                .createdAt(LocalDateTime.now())
+                .items(new ArrayList<>())
+                .build();
+        double total = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            double price = 120.0 + i * 5;
+            OrderItem item = OrderItem.builder()
+                    .id(UUID.randomUUID())
+                    .order(order)
+                    .menuItem(MenuItem.builder().id(UUID.randomUUID()).name("Menu item " + i).category("Mains")
+                            .price(price).available(true).description("House special number " + i)
+                            .hsnCode("996331").taxRate(5.0).build())
+                    .price(price)
+                    .quantity(1 + i % 3)
+                    .build();
+            if (i % 2 == 0) {
+                item.getModifiers().add(OrderItemModifier.builder()
+                        .orderItem(item)
+                        .menuModifier(MenuModifier.builder().id(UUID.randomUUID()).name("Extra cheese")
+                                .description("Add a slice").price(30.0).isActive(true).displayOrder(1).build())
+                        .price(30.0)
+                        .build());
+            }
+            order.getItems().add(item);
+            total += item.getTotalPrice();
+        }
+        order.setTotalAmount(total);
+        return order;
+    }
+}
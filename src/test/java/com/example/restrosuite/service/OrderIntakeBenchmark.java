@@ -0,0 +1,97 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.MenuModifier;
+import com.example.restrosuite.entity.ModifierGroup;
+import com.example.restrosuite.entity.TableEntity;
+import com.example.restrosuite.repository.MenuItemRepository;
+import com.example.restrosuite.repository.MenuModifierRepository;
+import com.example.restrosuite.repository.ModifierGroupRepository;
+import com.example.restrosuite.repository.TableRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders/sec and SQL statements per order for order intake. Run with {@code mvn test -Pbenchmark};
+ * {@code -Dbenchmark.orders} and {@code -Dbenchmark.lines} size the run.
+ */
+@Tag("benchmark")
+class OrderIntakeBenchmark extends IntegrationTest {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 500);
+    private static final int LINES = Integer.getInteger("benchmark.lines", 10);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private MenuCatalogService menuCatalogService;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private MenuModifierRepository menuModifierRepository;
+
+    @Autowired
+    private ModifierGroupRepository modifierGroupRepository;
+
+    @Autowired
+    private TableRepository tableRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void orderIntakeThroughput() {
+        ModifierGroup group = modifierGroupRepository.save(ModifierGroup.builder()
+                .name("Add-ons").isRequired(false).allowMultiple(true).minSelection(0).isActive(true).build());
+        List<MenuItem> items = new ArrayList<>();
+        List<MenuModifier> modifiers = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            items.add(menuItemRepository.save(MenuItem.builder()
+                    .name("Item " + i).category("Bench").price(100.0 + i).available(true).build()));
+            modifiers.add(menuModifierRepository.save(MenuModifier.builder()
+                    .modifierGroup(group).name("Add-on " + i).price(10.0).isActive(true).displayOrder(i).build()));
+        }
+        menuCatalogService.refresh();
+        String tableId = tableRepository.save(TableEntity.builder().tableNumber("B1").build()).getId().toString();
+
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            lines.add(Map.of("menuItemId", items.get(i).getId().toString(), "quantity", 2,
+                    "modifiers", List.of(Map.of("modifierId", modifiers.get(i).getId().toString()))));
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("tableId", tableId);
+        payload.put("items", lines);
+
+        // Warm up JIT and connection pool before measuring
+        for (int i = 0; i < Math.min(ORDERS, 100); i++) {
+            orderService.createOrder(payload);
+        }
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.setStatisticsEnabled(true);
+        stats.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            orderService.createOrder(payload);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stats.setStatisticsEnabled(false);
+
+        System.out.printf("order intake: %d orders x %d lines in %.2fs = %.0f orders/s, %.1f statements/order%n",
+                ORDERS, LINES, seconds, ORDERS / seconds, (double) stats.getPrepareStatementCount() / ORDERS);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.dto.OrderEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the dispatcher against a private H2 database; the Postgres advisory lock functions are
+ * aliased to {@link Locks}, which the tests can switch to simulate another node dispatching.
+ */
+class OutboxDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private JdbcTemplate jdbcTemplate;
+    private OutboxDispatcher dispatcher;
+    private ObjectMapper objectMapper;
+    private RecordingConsumer rollups;
+    private BroadcastConsumer broadcast;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE outbox_event (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, payload VARCHAR NOT NULL, "
+                + "stations VARCHAR, published_at TIMESTAMP, attempts INTEGER DEFAULT 0 NOT NULL, "
+                + "last_error VARCHAR(1000), parked_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE outbox_delivery (id UUID PRIMARY KEY, event_id BIGINT NOT NULL, "
+                + "consumer VARCHAR NOT NULL, delivered_at TIMESTAMP NOT NULL, UNIQUE (event_id, consumer))");
+        jdbcTemplate.execute("CREATE TABLE applied (event_id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE ALIAS pg_try_advisory_lock FOR '" + Locks.class.getName() + ".tryLock'");
+        jdbcTemplate.execute("CREATE ALIAS pg_advisory_unlock FOR '" + Locks.class.getName() + ".unlock'");
+        Locks.available = true;
+
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        rollups = new RecordingConsumer(jdbcTemplate);
+        broadcast = new BroadcastConsumer(jdbcTemplate);
+
+        dispatcher = new OutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "dataSource", dataSource);
+        ReflectionTestUtils.setField(dispatcher, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(dispatcher, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(dispatcher, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(dispatcher, "consumers", List.of(rollups, broadcast));
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", MAX_ATTEMPTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void broadcastsOnlyEventsTheDatabaseConsumersCommitted() throws Exception {
+        List<Long> ids = List.of(append(), append(), append());
+
+        assertEquals(3, dispatcher.dispatchBatch());
+
+        assertEquals(ids, broadcast.received);
+        assertEquals(ids, broadcast.appliedWhenReceived);
+        assertEquals(3, count("SELECT COUNT(*) FROM outbox_event WHERE published_at IS NOT NULL"));
+        assertEquals(0, count("SELECT COUNT(*) FROM outbox_delivery"));
+        assertEquals(0, dispatcher.dispatchBatch());
+    }
+
+    @Test
+    void failingEventDoesNotHoldUpTheRest() throws Exception {
+        long first = append();
+        long bad = append();
+        long last = append();
+        rollups.failOn.add(bad);
+        RecordingConsumer deductions = new DeductionConsumer(jdbcTemplate);
+        ReflectionTestUtils.setField(dispatcher, "consumers", List.of(deductions, rollups, broadcast));
+
+        assertEquals(2, dispatcher.dispatchBatch());
+        assertEquals(List.of(first, last), broadcast.received);
+        assertNull(publishedAt(bad));
+        assertEquals(1, count("SELECT attempts FROM outbox_event WHERE id = " + bad));
+        assertTrue(jdbcTemplate.queryForObject("SELECT last_error FROM outbox_event WHERE id = ?", String.class, bad)
+                .startsWith("RecordingConsumer: "));
+
+        // The consumer that already committed the bad event is not handed it again
+        rollups.failOn.clear();
+        assertEquals(1, dispatcher.dispatchBatch());
+        assertEquals(1, deductions.calls.get(bad));
+        assertEquals(List.of(first, last, bad), broadcast.received);
+        assertNotNull(publishedAt(bad));
+    }
+
+    @Test
+    void parksEventAfterMaxAttempts() throws Exception {
+        long bad = append();
+        rollups.failOn.add(bad);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            assertEquals(0, dispatcher.dispatchBatch());
+        }
+        assertNotNull(jdbcTemplate.queryForObject("SELECT parked_at FROM outbox_event WHERE id = ?", Object.class, bad));
+
+        long next = append();
+        assertEquals(1, dispatcher.dispatchBatch());
+        assertEquals(MAX_ATTEMPTS, rollups.calls.get(bad));
+        assertEquals(List.of(next), broadcast.received);
+    }
+
+    @Test
+    void parksUnreadablePayloadAtOnce() throws Exception {
+        jdbcTemplate.update("INSERT INTO outbox_event (payload) VALUES ('not json')");
+        long next = append();
+
+        assertEquals(1, dispatcher.dispatchBatch());
+        assertEquals(1, count("SELECT COUNT(*) FROM outbox_event WHERE parked_at IS NOT NULL"));
+        assertEquals(List.of(next), broadcast.received);
+    }
+
+    @Test
+    void leavesBatchToTheNodeHoldingTheLock() throws Exception {
+        append();
+        Locks.available = false;
+
+        assertEquals(0, dispatcher.dispatchBatch());
+        assertTrue(broadcast.received.isEmpty());
+        assertEquals(1, count("SELECT COUNT(*) FROM outbox_event WHERE published_at IS NULL"));
+    }
+
+    private long append() throws Exception {
+        OrderEvent event = OrderEvent.builder().type(OrderEvent.CREATED).orderId(UUID.randomUUID()).build();
+        jdbcTemplate.update("INSERT INTO outbox_event (payload) VALUES (?)", objectMapper.writeValueAsString(event));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM outbox_event", Long.class);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private Object publishedAt(long id) {
+        return jdbcTemplate.queryForObject("SELECT published_at FROM outbox_event WHERE id = ?", Object.class, id);
+    }
+
+    public static final class Locks {
+
+        static volatile boolean available = true;
+
+        public static boolean tryLock(long key) {
+            return available;
+        }
+
+        public static boolean unlock(long key) {
+            return true;
+        }
+    }
+
+    /** Database consumer; applies each event once and fails on the ids in failOn. */
+    private static class RecordingConsumer implements OutboxConsumer {
+
+        final Set<Long> failOn = ConcurrentHashMap.newKeySet();
+        final Map<Long, Integer> calls = new ConcurrentHashMap<>();
+        private final JdbcTemplate jdbcTemplate;
+
+        RecordingConsumer(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public boolean isTransactional() {
+            return true;
+        }
+
+        @Override
+        public void consume(List<OrderEvent> events) {
+            for (OrderEvent event : events) {
+                calls.merge(event.getSequence(), 1, Integer::sum);
+                if (failOn.contains(event.getSequence())) {
+                    throw new IllegalStateException("cannot apply " + event.getSequence());
+                }
+                jdbcTemplate.update("MERGE INTO applied (event_id) KEY (event_id) VALUES (?)", event.getSequence());
+            }
+        }
+    }
+
+    /** Second database consumer, recorded under its own name. */
+    private static class DeductionConsumer extends RecordingConsumer {
+
+        DeductionConsumer(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate);
+        }
+    }
+
+    /** Broadcast stand-in; notes which of its events were already committed by the database consumers. */
+    private static class BroadcastConsumer implements OutboxConsumer {
+
+        final List<Long> received = new ArrayList<>();
+        final List<Long> appliedWhenReceived = new ArrayList<>();
+        private final JdbcTemplate jdbcTemplate;
+
+        BroadcastConsumer(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public void consume(List<OrderEvent> events) {
+            Set<Long> applied = new HashSet<>(jdbcTemplate.queryForList("SELECT event_id FROM applied", Long.class));
+            for (OrderEvent event : events) {
+                received.add(event.getSequence());
+                if (applied.contains(event.getSequence())) {
+                    appliedWhenReceived.add(event.getSequence());
+                }
+            }
+        }
+    }
+}
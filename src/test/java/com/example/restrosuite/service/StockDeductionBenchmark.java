@@ -0,0 +1,85 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.Ingredient;
+import com.example.restrosuite.entity.MenuIngredient;
+import com.example.restrosuite.entity.MenuItem;
+import com.example.restrosuite.entity.OrderItem;
+import com.example.restrosuite.entity.StockMovement;
+import com.example.restrosuite.repository.IngredientRepository;
+import com.example.restrosuite.repository.MenuIngredientRepository;
+import com.example.restrosuite.repository.MenuItemRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bills/sec when many concurrent bills deduct the same hot ingredient through the ledger.
+ * Run with {@code mvn test -Pbenchmark}; {@code -Dbenchmark.writers} and {@code -Dbenchmark.bills}
+ * size the run, and pointing {@code -Dspring.datasource.url} at a scratch Postgres database gives
+ * representative lock contention.
+ */
+@Tag("benchmark")
+class StockDeductionBenchmark extends IntegrationTest {
+
+    private static final int WRITERS = Integer.getInteger("benchmark.writers", 32);
+    private static final int BILLS_PER_WRITER = Integer.getInteger("benchmark.bills", 100);
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private MenuIngredientRepository menuIngredientRepository;
+
+    @Test
+    void hotIngredientDeduction() throws Exception {
+        Ingredient oil = ingredientRepository.save(Ingredient.builder().name("Oil " + UUID.randomUUID()).unit("ml").threshold(0).build());
+        inventoryService.recordMovement(oil.getId(), StockMovement.ADJUSTMENT, 1_000_000.0, null);
+        MenuItem pakora = menuItemRepository.save(MenuItem.builder()
+                .name("Pakora").category("Snacks").price(80.0).available(true).build());
+        menuIngredientRepository.save(MenuIngredient.builder()
+                .menuItem(pakora).ingredient(oil).quantityRequired(15.0).build());
+        inventoryService.invalidateRecipeIndex();
+        List<OrderItem> bill = List.of(OrderItem.builder().menuItem(pakora).quantity(2).build());
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < BILLS_PER_WRITER; i++) {
+                    inventoryService.deductForBills(Map.of(UUID.randomUUID(), bill));
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(10, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+
+        int bills = WRITERS * BILLS_PER_WRITER;
+        System.out.printf("hot ingredient deduction: %d writers, %d bills in %.2fs = %.0f bills/s%n",
+                WRITERS, bills, seconds, bills / seconds);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.Ingredient;
+import com.example.restrosuite.entity.StockMovement;
+import com.example.restrosuite.repository.IngredientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockShardTest extends IntegrationTest {
+
+    private static final int WRITERS = 16;
+    private static final int MOVEMENTS_PER_WRITER = 25;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shardsPlusBaseMatchLedgerWhileCompacting() throws Exception {
+        Ingredient salt = ingredientRepository.save(Ingredient.builder()
+                .name("Salt " + UUID.randomUUID()).unit("g").threshold(0).hotStock(true).build());
+        UUID id = salt.getId();
+        inventoryService.ensureStockShards(id);
+        inventoryService.invalidateHotStockIds();
+        inventoryService.recordMovement(id, StockMovement.ADJUSTMENT, 1000.0, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            boolean sale = w % 2 == 0;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < MOVEMENTS_PER_WRITER; i++) {
+                    inventoryService.recordMovement(id, sale ? StockMovement.SALE : StockMovement.PURCHASE,
+                            sale ? -1.5 : 2.0, UUID.randomUUID());
+                }
+                return null;
+            }));
+        }
+        // Compaction folds shards back while the writers are still deducting
+        Future<?> compactor = pool.submit(() -> {
+            start.await();
+            while (writing.get()) {
+                inventoryService.compactStockShards();
+                Thread.sleep(5);
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        compactor.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        double expected = 1000.0 + (WRITERS / 2) * MOVEMENTS_PER_WRITER * (2.0 - 1.5);
+        assertEquals(expected, ledgerSum(id));
+        assertEquals(expected, base(id) + shardSum(id));
+        assertEquals(expected, inventoryService.getCurrentStock(ingredientRepository.findById(id).orElseThrow()));
+
+        inventoryService.compactStockShards();
+        assertEquals(0.0, shardSum(id));
+        assertEquals(expected, base(id));
+    }
+
+    @Test
+    void hotIngredientDeductionsLandOnShards() {
+        Ingredient oil = ingredientRepository.save(Ingredient.builder()
+                .name("Oil " + UUID.randomUUID()).unit("ml").threshold(0).hotStock(true).build());
+        inventoryService.ensureStockShards(oil.getId());
+        inventoryService.invalidateHotStockIds();
+
+        for (int i = 0; i < 20; i++) {
+            inventoryService.recordMovement(oil.getId(), StockMovement.SALE, -10.0, UUID.randomUUID());
+        }
+        assertEquals(0.0, base(oil.getId()));
+        assertEquals(-200.0, shardSum(oil.getId()));
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ingredient_stock_shard WHERE ingredient_id = ? AND quantity <> 0",
+                Integer.class, oil.getId()) > 1);
+    }
+
+    @Test
+    void turningHotStockOffCompactsOnlyThatIngredient() {
+        Ingredient ghee = hotIngredient("Ghee");
+        Ingredient sugar = hotIngredient("Sugar");
+        for (int i = 0; i < 10; i++) {
+            inventoryService.recordMovement(ghee.getId(), StockMovement.SALE, -5.0, UUID.randomUUID());
+            inventoryService.recordMovement(sugar.getId(), StockMovement.SALE, -5.0, UUID.randomUUID());
+        }
+
+        // Flag change and stock count in one update; the count matches, so no adjustment is booked
+        inventoryService.updateIngredient(ghee.getId(), Ingredient.builder()
+                .name(ghee.getName()).unit("g").quantity(-50.0).threshold(0).hotStock(false).build());
+        assertEquals(0.0, shardSum(ghee.getId()));
+        assertEquals(-50.0, base(ghee.getId()));
+        assertEquals(-50.0, shardSum(sugar.getId()));
+
+        // New deductions go straight to the base row
+        inventoryService.recordMovement(ghee.getId(), StockMovement.SALE, -5.0, UUID.randomUUID());
+        assertEquals(-55.0, base(ghee.getId()));
+        assertEquals(-55.0, ledgerSum(ghee.getId()));
+    }
+
+    @Test
+    void rolledBackFlagChangeDoesNotStayCached() {
+        Ingredient jaggery = ingredientRepository.save(Ingredient.builder()
+                .name("Jaggery " + UUID.randomUUID()).unit("g").threshold(0).build());
+
+        // A deduction inside the transaction reloads the hot set with the uncommitted flag
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            inventoryService.updateIngredient(jaggery.getId(), Ingredient.builder()
+                    .name(jaggery.getName()).unit("g").quantity(0.0).threshold(0).hotStock(true).build());
+            inventoryService.recordMovement(jaggery.getId(), StockMovement.SALE, -5.0, UUID.randomUUID());
+            status.setRollbackOnly();
+        });
+
+        Set<?> cached = (Set<?>) ReflectionTestUtils.getField(inventoryService, "hotStockIds");
+        assertTrue(cached == null || !cached.contains(jaggery.getId()));
+        inventoryService.recordMovement(jaggery.getId(), StockMovement.SALE, -5.0, UUID.randomUUID());
+        assertEquals(-5.0, base(jaggery.getId()));
+        assertEquals(0.0, shardSum(jaggery.getId()));
+    }
+
+    private Ingredient hotIngredient(String name) {
+        Ingredient ingredient = ingredientRepository.save(Ingredient.builder()
+                .name(name + " " + UUID.randomUUID()).unit("g").threshold(0).hotStock(true).build());
+        inventoryService.ensureStockShards(ingredient.getId());
+        inventoryService.invalidateHotStockIds();
+        return ingredient;
+    }
+
+    private double base(UUID ingredientId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM ingredient WHERE id = ?", Double.class, ingredientId);
+    }
+
+    private double shardSum(UUID ingredientId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM ingredient_stock_shard WHERE ingredient_id = ?",
+                Double.class, ingredientId);
+    }
+
+    private double ledgerSum(UUID ingredientId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_movement WHERE ingredient_id = ?", Double.class, ingredientId);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.restrosuite.service;
+
+import com.example.restrosuite.IntegrationTest;
+import com.example.restrosuite.entity.Ingredient;
+import com.example.restrosuite.entity.StockMovement;
+import com.example.restrosuite.repository.IngredientRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-row vs striped deduction of one ingredient under contention. Run with
+ * {@code mvn test -Pbenchmark}; {@code -Dbenchmark.writers} (default 64) and
+ * {@code -Dbenchmark.deductions} size the run. Row-lock contention is only representative
+ * when {@code -Dspring.datasource.url} points at a scratch Postgres database.
+ */
+@Tag("benchmark")
+class StripedStockBenchmark extends IntegrationTest {
+
+    private static final int WRITERS = Integer.getInteger("benchmark.writers", 64);
+    private static final int DEDUCTIONS_PER_WRITER = Integer.getInteger("benchmark.deductions", 50);
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Test
+    void singleRowVersusStriped() throws Exception {
+        Ingredient single = ingredientRepository.save(Ingredient.builder()
+                .name("Onion " + UUID.randomUUID()).unit("g").threshold(0).hotStock(false).build());
+        Ingredient striped = ingredientRepository.save(Ingredient.builder()
+                .name("Onion " + UUID.randomUUID()).unit("g").threshold(0).hotStock(true).build());
+        inventoryService.ensureStockShards(striped.getId());
+        inventoryService.invalidateHotStockIds();
+
+        // First pass warms up both paths
+        run(single.getId());
+        run(striped.getId());
+        report("single-row", run(single.getId()));
+        report("striped", run(striped.getId()));
+    }
+
+    private double run(UUID ingredientId) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < DEDUCTIONS_PER_WRITER; i++) {
+                    inventoryService.recordMovement(ingredientId, StockMovement.SALE, -1.0, UUID.randomUUID());
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(10, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        return seconds;
+    }
+
+    private void report(String mode, double seconds) {
+        int deductions = WRITERS * DEDUCTIONS_PER_WRITER;
+        System.out.printf("%s deduction: %d writers, %d deductions in %.2fs = %.0f deductions/s%n",
+                mode, WRITERS, deductions, seconds, deductions / seconds);
+    }
+}